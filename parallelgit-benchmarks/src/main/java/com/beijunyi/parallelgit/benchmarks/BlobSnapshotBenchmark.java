@@ -0,0 +1,43 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.utils.TreeUtils;
+import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class BlobSnapshotBenchmark {
+
+  @Param({"1024", "1048576", "67108864"})
+  public int size;
+
+  private ObjectId blob;
+  private ObjectReader reader;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    RepositoryFixture fixture = RepositoryFixture.create(0, 0, 1, size);
+    blob = TreeUtils.getObjectId(fixture.getFiles().get(0), fixture.getHead().getTree(), fixture.getRepository());
+    reader = fixture.getRepository().newObjectReader();
+  }
+
+  @TearDown(Level.Trial)
+  public void closeReader() {
+    reader.close();
+  }
+
+  @Benchmark
+  public byte[] getData() throws IOException {
+    return BlobSnapshot.load(blob, reader).getData();
+  }
+
+}
@@ -0,0 +1,70 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+import org.openjdk.jmh.annotations.*;
+
+import static java.nio.file.StandardOpenOption.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ByteChannelBenchmark {
+
+  @Param({"1024", "1048576"})
+  public int fileSize;
+
+  private RepositoryFixture fixture;
+  private GitFileSystem gfs;
+  private GitPath file;
+  private byte[] data;
+  private ByteBuffer buffer;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(1, 4, 4, fileSize);
+    data = fixture.randomBytes();
+    buffer = ByteBuffer.allocate(8192);
+  }
+
+  @Setup(Level.Iteration)
+  public void openFileSystem() throws IOException {
+    gfs = fixture.openFileSystem();
+    file = gfs.getPath(fixture.getFiles().get(0));
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public long read() throws IOException {
+    long total = 0;
+    try(SeekableByteChannel channel = Files.newByteChannel(file, READ)) {
+      int count;
+      while((count = channel.read(buffer)) > 0) {
+        total += count;
+        buffer.clear();
+      }
+    }
+    return total;
+  }
+
+  @Benchmark
+  public long write() throws IOException {
+    try(SeekableByteChannel channel = Files.newByteChannel(file, WRITE, TRUNCATE_EXISTING)) {
+      return channel.write(ByteBuffer.wrap(data));
+    }
+  }
+
+}
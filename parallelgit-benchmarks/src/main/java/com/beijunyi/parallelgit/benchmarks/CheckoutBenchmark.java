@@ -0,0 +1,58 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.io.GfsDefaultCheckout;
+import org.eclipse.jgit.lib.ObjectId;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class CheckoutBenchmark {
+
+  private static final String TARGET = "target";
+
+  @Param({"3"})
+  public int depth;
+
+  @Param({"8"})
+  public int width;
+
+  @Param({"10", "1000"})
+  public int changes;
+
+  private RepositoryFixture fixture;
+  private ObjectId targetTree;
+  private GitFileSystem gfs;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(depth, width, 4, 256);
+    fixture.createBranch(TARGET);
+    targetTree = fixture.commitEdits(TARGET, fixture.pickFiles(changes)).getTree();
+  }
+
+  @Setup(Level.Invocation)
+  public void openFileSystem() throws IOException {
+    gfs = fixture.openFileSystem();
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public boolean checkout() throws IOException {
+    GfsDefaultCheckout checkout = new GfsDefaultCheckout(gfs);
+    checkout.checkout(targetTree);
+    return checkout.hasConflicts();
+  }
+
+}
@@ -0,0 +1,62 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.io.GfsIO;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class DirectoryStreamBenchmark {
+
+  @Param({"100", "10000"})
+  public int width;
+
+  private RepositoryFixture fixture;
+  private GitFileSystem gfs;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(0, 0, width, 16);
+  }
+
+  @Setup(Level.Iteration)
+  public void openFileSystem() throws IOException {
+    gfs = fixture.openFileSystem();
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public int listWideDirectory() throws IOException {
+    int count = 0;
+    try(DirectoryStream<Path> stream = Files.newDirectoryStream(gfs.getRootPath())) {
+      for(Path ignored : stream)
+        count++;
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int listWideDirectoryWithGlob() throws IOException {
+    int count = 0;
+    try(DirectoryStream<Path> stream = GfsIO.newDirectoryStream(gfs.getRootPath(), "*1.txt")) {
+      for(Path ignored : stream)
+        count++;
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,54 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import org.eclipse.jgit.lib.ObjectId;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FlushBenchmark {
+
+  @Param({"3"})
+  public int depth;
+
+  @Param({"8"})
+  public int width;
+
+  @Param({"10", "1000"})
+  public int edits;
+
+  private RepositoryFixture fixture;
+  private List<String> editedFiles;
+  private GitFileSystem gfs;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(depth, width, 4, 256);
+    editedFiles = fixture.pickFiles(edits);
+  }
+
+  @Setup(Level.Invocation)
+  public void editFiles() throws IOException {
+    gfs = fixture.openFileSystem();
+    fixture.editFiles(gfs, editedFiles);
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public ObjectId flush() throws IOException {
+    return gfs.flush();
+  }
+
+}
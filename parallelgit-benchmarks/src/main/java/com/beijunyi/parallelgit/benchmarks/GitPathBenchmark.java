@@ -0,0 +1,69 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class GitPathBenchmark {
+
+  private static final String DEEP_PATH = "/dir0/dir1/dir2/dir3/dir4/dir5/file.txt";
+  private static final String UNNORMALIZED_PATH = "/dir0//dir1/./dir2/../dir2/file.txt/";
+
+  private RepositoryFixture fixture;
+  private GitFileSystem gfs;
+  private GitPath parent;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(0, 0, 1, 16);
+    gfs = fixture.openFileSystem();
+    parent = gfs.getPath("/dir0/dir1/dir2");
+  }
+
+  @TearDown(Level.Trial)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public GitPath parse() {
+    return gfs.getPath(DEEP_PATH);
+  }
+
+  @Benchmark
+  public GitPath parseAndNormalize() {
+    return gfs.getPath(UNNORMALIZED_PATH).normalize();
+  }
+
+  @Benchmark
+  public GitPath resolve() {
+    return parent.resolve("dir3/file.txt");
+  }
+
+  @Benchmark
+  public int iterateNames() {
+    int ret = 0;
+    GitPath path = gfs.getPath(DEEP_PATH);
+    for(int i = 0; i < path.getNameCount(); i++)
+      ret += path.getName(i).toString().length();
+    return ret;
+  }
+
+  @Benchmark
+  public int walkParents() {
+    int ret = 0;
+    for(GitPath path = gfs.getPath(DEEP_PATH); path != null; path = path.getParent())
+      ret += path.getFileName() != null ? 1 : 0;
+    return ret;
+  }
+
+}
@@ -0,0 +1,60 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.commands.GfsMerge;
+import org.openjdk.jmh.annotations.*;
+
+import static org.eclipse.jgit.lib.Constants.MASTER;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MergeBenchmark {
+
+  private static final String FEATURE = "feature";
+
+  @Param({"3"})
+  public int depth;
+
+  @Param({"8"})
+  public int width;
+
+  @Param({"10", "500"})
+  public int edits;
+
+  private RepositoryFixture fixture;
+  private GitFileSystem gfs;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(depth, width, 4, 256);
+    fixture.createBranch(FEATURE);
+    List<String> files = fixture.pickFiles(edits * 2);
+    fixture.commitEdits(FEATURE, files.subList(0, files.size() / 2));
+    fixture.commitEdits(MASTER, files.subList(files.size() / 2, files.size()));
+  }
+
+  @Setup(Level.Invocation)
+  public void openFileSystem() throws IOException {
+    gfs = fixture.openFileSystem();
+  }
+
+  @TearDown(Level.Invocation)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public GfsMerge.Result threeWayMerge() throws IOException {
+    return Gfs.merge(gfs).source(FEATURE).commit(false).execute();
+  }
+
+}
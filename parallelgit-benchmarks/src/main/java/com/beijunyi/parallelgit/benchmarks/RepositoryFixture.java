@@ -0,0 +1,142 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.annotation.Nonnull;
+
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+import com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration;
+import com.beijunyi.parallelgit.utils.BranchUtils;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import static java.util.Collections.unmodifiableList;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+
+/**
+ * An in-memory repository whose master branch contains a balanced directory tree: every directory above the given
+ * depth has {@code width} subdirectories, and every directory has {@code filesPerDirectory} files.
+ */
+public class RepositoryFixture {
+
+  private static final long SEED = 42;
+
+  private final Repository repo;
+  private final RevCommit head;
+  private final List<String> files;
+  private final List<String> directories;
+  private final int fileSize;
+  private final Random random = new Random(SEED);
+
+  private RepositoryFixture(Repository repo, RevCommit head, List<String> files, List<String> directories, int fileSize) {
+    this.repo = repo;
+    this.head = head;
+    this.files = unmodifiableList(files);
+    this.directories = unmodifiableList(directories);
+    this.fileSize = fileSize;
+  }
+
+  @Nonnull
+  public static RepositoryFixture create(int depth, int width, int filesPerDirectory, int fileSize) throws IOException {
+    GfsConfiguration cfg = GfsConfiguration.inMemoryRepo().branch(MASTER);
+    Repository repo = cfg.repository();
+    List<String> files = new ArrayList<>();
+    List<String> directories = new ArrayList<>();
+    Random random = new Random(SEED);
+    try(GitFileSystem gfs = Gfs.newFileSystem(cfg)) {
+      populate(gfs.getRootPath(), depth, width, filesPerDirectory, fileSize, random, files, directories);
+      RevCommit head = Gfs.commit(gfs).message("fixture").execute().getCommit();
+      return new RepositoryFixture(repo, head, files, directories, fileSize);
+    }
+  }
+
+  @Nonnull
+  public Repository getRepository() {
+    return repo;
+  }
+
+  @Nonnull
+  public RevCommit getHead() {
+    return head;
+  }
+
+  @Nonnull
+  public List<String> getFiles() {
+    return files;
+  }
+
+  @Nonnull
+  public List<String> getDirectories() {
+    return directories;
+  }
+
+  @Nonnull
+  public GitFileSystem openFileSystem() throws IOException {
+    return Gfs.newFileSystem(MASTER, repo);
+  }
+
+  @Nonnull
+  public GitFileSystem openFileSystem(String branch) throws IOException {
+    return Gfs.newFileSystem(branch, repo);
+  }
+
+  @Nonnull
+  public byte[] randomBytes() {
+    return randomBytes(fileSize, random);
+  }
+
+  @Nonnull
+  public List<String> pickFiles(int count) {
+    List<String> ret = new ArrayList<>(count);
+    int step = Math.max(1, files.size() / Math.max(1, count));
+    for(int i = 0; ret.size() < count && i < files.size(); i += step)
+      ret.add(files.get(i));
+    return ret;
+  }
+
+  public void editFiles(GitFileSystem gfs, List<String> paths) throws IOException {
+    for(String path : paths)
+      Files.write(gfs.getPath(path), randomBytes());
+  }
+
+  @Nonnull
+  public RevCommit commitEdits(String branch, List<String> paths) throws IOException {
+    try(GitFileSystem gfs = openFileSystem(branch)) {
+      editFiles(gfs, paths);
+      return Gfs.commit(gfs).message("edit " + paths.size() + " files").execute().getCommit();
+    }
+  }
+
+  public void createBranch(String name) throws IOException {
+    BranchUtils.createBranch(name, head, repo);
+  }
+
+  private static void populate(GitPath dir, int depth, int width, int filesPerDirectory, int fileSize, Random random, List<String> files, List<String> directories) throws IOException {
+    for(int i = 0; i < filesPerDirectory; i++) {
+      GitPath file = dir.resolve("file" + i + ".txt");
+      Files.write(file, randomBytes(fileSize, random));
+      files.add(file.toString());
+    }
+    if(depth <= 0)
+      return;
+    for(int i = 0; i < width; i++) {
+      GitPath child = dir.resolve("dir" + i);
+      Files.createDirectory(child);
+      directories.add(child.toString());
+      populate(child, depth - 1, width, filesPerDirectory, fileSize, random, files, directories);
+    }
+  }
+
+  @Nonnull
+  private static byte[] randomBytes(int size, Random random) {
+    byte[] ret = new byte[size];
+    random.nextBytes(ret);
+    return ret;
+  }
+
+}
@@ -0,0 +1,42 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class TreeSnapshotBenchmark {
+
+  @Param({"100", "10000"})
+  public int width;
+
+  private ObjectId tree;
+  private ObjectReader reader;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    RepositoryFixture fixture = RepositoryFixture.create(0, 0, width, 16);
+    tree = fixture.getHead().getTree();
+    reader = fixture.getRepository().newObjectReader();
+  }
+
+  @TearDown(Level.Trial)
+  public void closeReader() {
+    reader.close();
+  }
+
+  @Benchmark
+  public TreeSnapshot load() throws IOException {
+    return TreeSnapshot.load(tree, reader);
+  }
+
+}
@@ -0,0 +1,69 @@
+package com.beijunyi.parallelgit.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.io.GfsWalkEntry;
+import com.beijunyi.parallelgit.filesystem.io.GfsWalkVisitor;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class WalkBenchmark {
+
+  private RepositoryFixture fixture;
+  private GitFileSystem gfs;
+
+  @Setup(Level.Trial)
+  public void setupFixture() throws IOException {
+    fixture = RepositoryFixture.create(3, 8, 16, 16);
+  }
+
+  @Setup(Level.Iteration)
+  public void openFileSystem() throws IOException {
+    gfs = fixture.openFileSystem();
+  }
+
+  @TearDown(Level.Iteration)
+  public void closeFileSystem() {
+    gfs.close();
+  }
+
+  @Benchmark
+  public int walkFileTree() throws IOException {
+    final int[] count = new int[1];
+    Files.walkFileTree(gfs.getRootPath(), new SimpleFileVisitor<Path>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+        count[0]++;
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return count[0];
+  }
+
+  @Benchmark
+  public int walkNative() throws IOException {
+    final int[] count = new int[1];
+    gfs.walk("/").walk(new GfsWalkVisitor() {
+      @Override
+      public boolean visit(GfsWalkEntry entry) {
+        if(!entry.isDirectory())
+          count[0]++;
+        return true;
+      }
+    });
+    return count[0];
+  }
+
+}
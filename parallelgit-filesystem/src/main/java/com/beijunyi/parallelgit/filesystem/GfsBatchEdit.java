@@ -0,0 +1,85 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+
+import com.beijunyi.parallelgit.filesystem.io.*;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+
+import static com.beijunyi.parallelgit.utils.io.GitFileEntry.newEntry;
+import static org.eclipse.jgit.lib.FileMode.REGULAR_FILE;
+
+/**
+ * Collects file writes, deletions and mode changes and applies them to a {@link GitFileSystem} in one pass. Changes
+ * are grouped by directory so that every directory is looked up and invalidated once, regardless of how many of its
+ * children change. When the same path is edited more than once, the last edit wins.
+ */
+public class GfsBatchEdit {
+
+  private final GitFileSystem gfs;
+  private final Map<String, GfsChange> changes = new LinkedHashMap<>();
+
+  GfsBatchEdit(GitFileSystem gfs) {
+    this.gfs = gfs;
+  }
+
+  @Nonnull
+  public GfsBatchEdit write(String path, byte[] bytes) {
+    return write(path, bytes, REGULAR_FILE);
+  }
+
+  @Nonnull
+  public GfsBatchEdit write(String path, byte[] bytes, FileMode mode) {
+    return addChange(path, new UpdateFile(bytes, mode));
+  }
+
+  @Nonnull
+  public GfsBatchEdit write(String path, InputStream in, long length) throws IOException {
+    return write(path, in, length, REGULAR_FILE);
+  }
+
+  @Nonnull
+  public GfsBatchEdit write(String path, InputStream in, long length, FileMode mode) throws IOException {
+    ObjectId blob = gfs.getObjectService().insertBlob(length, in, false);
+    return addChange(path, new UpdateNode(newEntry(blob, mode)));
+  }
+
+  @Nonnull
+  public GfsBatchEdit delete(String path) {
+    return addChange(path, GfsChangesCollector.DELETE_NODE);
+  }
+
+  @Nonnull
+  public GfsBatchEdit setMode(String path, FileMode mode) {
+    return addChange(path, new UpdateMode(mode));
+  }
+
+  public int size() {
+    return changes.size();
+  }
+
+  public void apply() throws IOException {
+    gfs.getObjectService().flush();
+    GfsChangesCollector collector = new GfsChangesCollector();
+    for(Map.Entry<String, GfsChange> change : changes.entrySet())
+      collector.addChange(change.getKey(), change.getValue());
+    collector.applyTo(gfs);
+    changes.clear();
+  }
+
+  @Nonnull
+  private GfsBatchEdit addChange(String path, GfsChange change) {
+    GitPath normalized = gfs.getPath(path).toAbsolutePath().normalize();
+    if(normalized.isRoot())
+      throw new IllegalArgumentException(path);
+    String key = normalized.toString();
+    changes.remove(key);
+    changes.put(key, change);
+    return this;
+  }
+
+}
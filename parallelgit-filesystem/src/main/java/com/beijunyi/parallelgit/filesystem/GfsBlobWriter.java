@@ -0,0 +1,61 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.Nonnull;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+
+/**
+ * Inserts blobs through an inserter private to each calling thread, so that concurrent callers hash, deflate and write
+ * their blobs without waiting for each other. The blobs are flushed when the writer is closed.
+ */
+public class GfsBlobWriter implements Closeable {
+
+  private final Repository repo;
+  private final GfsObjectService objService;
+  private final ConcurrentMap<Thread, ObjectInserter> inserters = new ConcurrentHashMap<>();
+
+  GfsBlobWriter(Repository repo, GfsObjectService objService) {
+    this.repo = repo;
+    this.objService = objService;
+  }
+
+  @Nonnull
+  public ObjectId insert(byte[] data) throws IOException {
+    long start = System.nanoTime();
+    ObjectId ret = getInserter().insert(OBJ_BLOB, data);
+    objService.recordWrite(start, 1);
+    return ret;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      for(ObjectInserter inserter : inserters.values())
+        inserter.flush();
+    } finally {
+      for(ObjectInserter inserter : inserters.values())
+        inserter.close();
+      inserters.clear();
+    }
+  }
+
+  @Nonnull
+  private ObjectInserter getInserter() {
+    Thread thread = Thread.currentThread();
+    ObjectInserter ret = inserters.get(thread);
+    if(ret == null) {
+      ret = repo.newObjectInserter();
+      inserters.put(thread, ret);
+    }
+    return ret;
+  }
+
+}
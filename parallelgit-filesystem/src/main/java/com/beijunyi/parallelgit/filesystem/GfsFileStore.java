@@ -17,9 +17,15 @@ import static com.beijunyi.parallelgit.filesystem.io.RootNode.*;
 public class GfsFileStore extends FileStore {
 
   private final RootNode root;
+  private final boolean readOnly;
 
   public GfsFileStore(@Nullable RevCommit commit, GfsObjectService objService) throws IOException {
-    root = commit != null ? fromCommit(commit, objService) : newRoot(objService);
+    this(commit != null ? fromCommit(commit, objService) : newRoot(objService), objService);
+  }
+
+  GfsFileStore(RootNode root, GfsObjectService objService) {
+    this.root = root;
+    this.readOnly = objService.isReadOnly();
   }
 
   @Nonnull
@@ -36,7 +42,7 @@ public class GfsFileStore extends FileStore {
 
   @Override
   public boolean isReadOnly() {
-    return false;
+    return readOnly;
   }
 
   @Override
@@ -0,0 +1,43 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.Closeable;
+import java.nio.file.ClosedFileSystemException;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.Nonnull;
+
+/**
+ * A {@link ForkJoinPool} shared by a file system and its forks. The pool is shut down when the last file system
+ * using it is closed.
+ */
+class GfsFlushPool implements Closeable {
+
+  private final ForkJoinPool pool;
+
+  private boolean closed = false;
+  private int references = 1;
+
+  GfsFlushPool(int parallelism) {
+    pool = new ForkJoinPool(parallelism);
+  }
+
+  @Nonnull
+  ForkJoinPool getPool() {
+    return pool;
+  }
+
+  @Nonnull
+  synchronized GfsFlushPool retain() {
+    if(closed) throw new ClosedFileSystemException();
+    references++;
+    return this;
+  }
+
+  @Override
+  public synchronized void close() {
+    if(!closed && --references == 0) {
+      closed = true;
+      pool.shutdown();
+    }
+  }
+
+}
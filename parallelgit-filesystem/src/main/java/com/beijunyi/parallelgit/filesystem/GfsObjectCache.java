@@ -0,0 +1,133 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
+import com.beijunyi.parallelgit.utils.io.GitFileEntry;
+import com.beijunyi.parallelgit.utils.io.ObjectSnapshot;
+import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * A size-bounded, least-recently-used cache of parsed tree snapshots and small blob snapshots. Objects are keyed by
+ * their ids, so one instance can be shared by all {@link GitFileSystem}s opened on the same repository.
+ */
+public class GfsObjectCache {
+
+  public static final long DEFAULT_MAX_WEIGHT = 32L * 1024 * 1024;
+  public static final int DEFAULT_MAX_BLOB_SIZE = 64 * 1024;
+
+  private static final int ENTRY_OVERHEAD = 64;
+  private static final int TREE_ENTRY_OVERHEAD = 80;
+
+  private final long maxWeight;
+  private final int maxBlobSize;
+  private final LinkedHashMap<ObjectId, CachedObject> objects = new LinkedHashMap<>(16, 0.75f, true);
+
+  private long weight = 0;
+
+  public GfsObjectCache(long maxWeight, int maxBlobSize) {
+    if(maxWeight < 0)
+      throw new IllegalArgumentException("Max weight must not be negative: " + maxWeight);
+    if(maxBlobSize < 0)
+      throw new IllegalArgumentException("Max blob size must not be negative: " + maxBlobSize);
+    this.maxWeight = maxWeight;
+    this.maxBlobSize = maxBlobSize;
+  }
+
+  public GfsObjectCache() {
+    this(DEFAULT_MAX_WEIGHT, DEFAULT_MAX_BLOB_SIZE);
+  }
+
+  @Nullable
+  public TreeSnapshot getTree(AnyObjectId id) {
+    ObjectSnapshot ret = get(id);
+    return ret instanceof TreeSnapshot ? (TreeSnapshot) ret : null;
+  }
+
+  @Nullable
+  public BlobSnapshot getBlob(AnyObjectId id) {
+    ObjectSnapshot ret = get(id);
+    return ret instanceof BlobSnapshot ? (BlobSnapshot) ret : null;
+  }
+
+  public boolean acceptsBlob(long size) {
+    return size <= maxBlobSize && size + ENTRY_OVERHEAD <= maxWeight;
+  }
+
+  public void put(TreeSnapshot tree) throws IOException {
+    int treeWeight = ENTRY_OVERHEAD;
+    for(Map.Entry<String, GitFileEntry> child : tree.getData().entrySet())
+      treeWeight += TREE_ENTRY_OVERHEAD + 2 * child.getKey().length();
+    put(tree, treeWeight);
+  }
+
+  public void put(BlobSnapshot blob) throws IOException {
+    byte[] data = blob.getData();
+    if(acceptsBlob(data.length))
+      put(blob, ENTRY_OVERHEAD + data.length);
+  }
+
+  public synchronized int size() {
+    return objects.size();
+  }
+
+  public synchronized long getWeight() {
+    return weight;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public int getMaxBlobSize() {
+    return maxBlobSize;
+  }
+
+  public synchronized void clear() {
+    objects.clear();
+    weight = 0;
+  }
+
+  @Nullable
+  private synchronized ObjectSnapshot get(AnyObjectId id) {
+    CachedObject ret = objects.get(id);
+    return ret != null ? ret.snapshot : null;
+  }
+
+  private synchronized void put(ObjectSnapshot snapshot, int objectWeight) {
+    if(objectWeight > maxWeight)
+      return;
+    CachedObject previous = objects.put(snapshot.getId(), new CachedObject(snapshot, objectWeight));
+    if(previous != null)
+      weight -= previous.weight;
+    weight += objectWeight;
+    evict();
+  }
+
+  private void evict() {
+    Iterator<CachedObject> it = objects.values().iterator();
+    while(weight > maxWeight && it.hasNext()) {
+      weight -= it.next().weight;
+      it.remove();
+    }
+  }
+
+  private static class CachedObject {
+
+    private final ObjectSnapshot snapshot;
+    private final int weight;
+
+    private CachedObject(ObjectSnapshot snapshot, int weight) {
+      this.snapshot = snapshot;
+      this.weight = weight;
+    }
+
+  }
+
+}
@@ -1,28 +1,69 @@
 package com.beijunyi.parallelgit.filesystem;
 
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
 import java.nio.file.ClosedFileSystemException;
+import java.nio.file.Files;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import com.beijunyi.parallelgit.filesystem.metrics.GfsMetrics;
+import com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration;
 import com.beijunyi.parallelgit.utils.BlobUtils;
 import com.beijunyi.parallelgit.utils.io.*;
+import org.eclipse.jgit.internal.storage.file.ObjectDirectory;
 import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsCounter.*;
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsTimer.*;
 import static org.eclipse.jgit.lib.Constants.*;
 
 public class GfsObjectService implements Closeable {
 
   private final Repository repo;
-  private final ObjectReader reader;
+  private final ObjectReader[] readers;
+  private final Lock[] readerLocks;
+  private final Semaphore readerPermits;
+  private final Queue<ObjectReader> idleReaders = new ConcurrentLinkedQueue<>();
   private final ObjectInserter inserter;
+  private final Lock inserterLock = new ReentrantLock();
+  private final GfsObjectCache cache;
+  private final GfsMetrics metrics;
+  private final AtomicInteger watchers = new AtomicInteger();
 
+  private volatile ObjectStorage storage;
   private volatile boolean closed = false;
+  private int references = 1;
 
-  GfsObjectService(final Repository repo) {
-    this.repo = repo;
-    this.reader = repo.newObjectReader();
-    this.inserter = repo.newObjectInserter();
+  GfsObjectService(GfsConfiguration cfg) {
+    this.repo = cfg.repository();
+    if(cfg.readOnly()) {
+      this.readers = new ObjectReader[0];
+      this.readerPermits = new Semaphore(Math.max(cfg.readerPoolSize(), Runtime.getRuntime().availableProcessors()));
+      this.inserter = null;
+    } else {
+      this.readers = newReaders(repo, cfg.readerPoolSize());
+      this.readerPermits = null;
+      this.inserter = repo.newObjectInserter();
+    }
+    this.readerLocks = newLocks(readers.length);
+    this.cache = cfg.objectCache();
+    this.metrics = cfg.metrics();
+  }
+
+  public boolean isReadOnly() {
+    return inserter == null;
   }
 
   @Nonnull
@@ -30,18 +71,45 @@ public class GfsObjectService implements Closeable {
     return repo;
   }
 
+  @Nullable
+  public GfsObjectCache getCache() {
+    return cache;
+  }
+
+  @Nonnull
+  public GfsMetrics getMetrics() {
+    return metrics;
+  }
+
   @Nonnull
   public ObjectLoader open(AnyObjectId objectId) throws IOException {
     checkClosed();
-    synchronized(reader) {
+    ObjectReader reader = acquireReader();
+    try {
       return reader.open(objectId);
+    } finally {
+      releaseReader(reader);
+    }
+  }
+
+  @Nonnull
+  public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+    checkClosed();
+    ObjectReader reader = acquireReader();
+    try {
+      return reader.open(objectId, typeHint);
+    } finally {
+      releaseReader(reader);
     }
   }
 
   public boolean hasObject(AnyObjectId objectId) throws IOException {
     checkClosed();
-    synchronized(reader) {
+    ObjectReader reader = acquireReader();
+    try {
       return reader.has(objectId);
+    } finally {
+      releaseReader(reader);
     }
   }
 
@@ -57,82 +125,371 @@ public class GfsObjectService implements Closeable {
   @Nonnull
   public BlobSnapshot readBlob(ObjectId id) throws IOException {
     checkClosed();
-    synchronized(reader) {
-      return BlobUtils.readBlob(id, reader);
+    if(cache != null) {
+      BlobSnapshot cached = cache.getBlob(id);
+      if(cached != null) {
+        metrics.increment(CACHE_HITS, 1);
+        return cached;
+      }
+      metrics.increment(CACHE_MISSES, 1);
+    }
+    long start = System.nanoTime();
+    ObjectLoader loader = open(id, OBJ_BLOB);
+    metrics.increment(BYTES_INFLATED, loader.getSize());
+    BlobSnapshot ret = BlobSnapshot.load(id, loader);
+    if(cache != null && cache.acceptsBlob(loader.getSize())) {
+      ret.getData();
+      cache.put(ret);
     }
+    recordRead(start);
+    return ret;
   }
 
   public long getBlobSize(ObjectId id) throws IOException {
     checkClosed();
-    synchronized(reader) {
+    ObjectReader reader = acquireReader();
+    try {
       return BlobUtils.getBlobSize(id, reader);
+    } finally {
+      releaseReader(reader);
     }
   }
 
   @Nonnull
   public TreeSnapshot readTree(ObjectId id) throws IOException {
     checkClosed();
-    synchronized(reader) {
-      return TreeSnapshot.load(id, reader);
+    if(cache != null) {
+      TreeSnapshot cached = cache.getTree(id);
+      if(cached != null) {
+        metrics.increment(CACHE_HITS, 1);
+        return cached;
+      }
+      metrics.increment(CACHE_MISSES, 1);
+    }
+    long start = System.nanoTime();
+    TreeSnapshot ret;
+    ObjectReader reader = acquireReader();
+    try {
+      ret = TreeSnapshot.load(id, reader);
+    } finally {
+      releaseReader(reader);
     }
+    recordRead(start);
+    if(cache != null)
+      cache.put(ret);
+    return ret;
   }
 
   @Nonnull
   public ObjectId write(ObjectSnapshot snapshot) throws IOException {
-    return snapshot.save(inserter);
+    checkWritable();
+    long start = System.nanoTime();
+    ObjectId ret;
+    inserterLock.lock();
+    try {
+      ret = snapshot.save(inserter);
+    } finally {
+      inserterLock.unlock();
+    }
+    recordWrite(start, 1);
+    if(cache != null && snapshot instanceof TreeSnapshot)
+      cache.put((TreeSnapshot) snapshot);
+    return ret;
   }
 
-  public void pullObject(ObjectId id, boolean flush, GfsObjectService sourceObjService) throws IOException {
-    if(!hasObject(id)) {
-      ObjectLoader loader = sourceObjService.open(id);
-      switch(loader.getType()) {
-        case OBJ_TREE:
-          pullTree(id, sourceObjService);
-          break;
-        case OBJ_BLOB:
-          pullBlob(id, sourceObjService);
-          break;
-        default:
-          throw new UnsupportedOperationException(id.toString());
-      }
-      if(flush) flush();
+  public void write(Collection<? extends ObjectSnapshot> snapshots) throws IOException {
+    checkWritable();
+    long start = System.nanoTime();
+    inserterLock.lock();
+    try {
+      for(ObjectSnapshot snapshot : snapshots)
+        snapshot.save(inserter);
+    } finally {
+      inserterLock.unlock();
+    }
+    recordWrite(start, snapshots.size());
+    if(cache != null) {
+      for(ObjectSnapshot snapshot : snapshots)
+        if(snapshot instanceof TreeSnapshot)
+          cache.put((TreeSnapshot) snapshot);
+    }
+  }
+
+  /**
+   * Streams a blob into the object database. When {@code flush} is {@code false} the blob may stay buffered in the
+   * inserter until the next {@link #flush()}, which lets callers inserting many blobs write them out together.
+   */
+  @Nonnull
+  public ObjectId insertBlob(long length, InputStream in, boolean flush) throws IOException {
+    checkClosed();
+    checkWritable();
+    long start = System.nanoTime();
+    inserterLock.lock();
+    try {
+      ObjectId ret = inserter.insert(OBJ_BLOB, length, in);
+      if(flush) inserter.flush();
+      recordWrite(start, 1);
+      return ret;
+    } finally {
+      inserterLock.unlock();
     }
   }
 
+  @Nonnull
+  public ObjectId insertBlob(long length, InputStream in) throws IOException {
+    return insertBlob(length, in, true);
+  }
+
+  @Nonnull
+  public GfsBlobWriter newBlobWriter() {
+    checkClosed();
+    checkWritable();
+    return new GfsBlobWriter(repo, this);
+  }
+
+  /**
+   * Copies an object and everything it references from another object service. Nothing is copied when the two
+   * services share their object storage, and only the objects missing from this service are read from the source.
+   * Objects are copied in their canonical form; large blobs are streamed rather than inflated into memory.
+   */
+  public void pullObject(ObjectId id, boolean flush, GfsObjectService sourceObjService) throws IOException {
+    checkClosed();
+    checkWritable();
+    if(sharesStorageWith(sourceObjService) || hasObject(id))
+      return;
+    long start = System.nanoTime();
+    int count = pullMissingObject(id, sourceObjService, new HashSet<ObjectId>());
+    if(flush) flush();
+    recordWrite(start, count);
+  }
+
   public void pullObject(ObjectId id, GfsObjectService sourceObjService) throws IOException {
     pullObject(id, true, sourceObjService);
   }
 
   public void flush() throws IOException {
     checkClosed();
-    synchronized(inserter) {
+    if(inserter == null)
+      return;
+    inserterLock.lock();
+    try {
       inserter.flush();
+    } finally {
+      inserterLock.unlock();
     }
   }
 
+  /**
+   * Counts the watch services registered on the file systems sharing this service, so that a modified node can tell
+   * whether anything is watched without walking up to its root.
+   */
+  public void addWatcher() {
+    watchers.incrementAndGet();
+  }
+
+  public void removeWatcher() {
+    watchers.decrementAndGet();
+  }
+
+  public boolean hasWatchers() {
+    return watchers.get() > 0;
+  }
+
+  @Nonnull
+  synchronized GfsObjectService retain() {
+    checkClosed();
+    references++;
+    return this;
+  }
+
   @Override
   public synchronized void close() {
-    if(!closed) {
+    if(!closed && --references == 0) {
       closed = true;
-      reader.close();
-      inserter.close();
+      for(ObjectReader reader : readers)
+        reader.close();
+      closeIdleReaders();
+      if(inserter != null)
+        inserter.close();
       repo.close();
     }
   }
 
-  private void pullTree(ObjectId id, GfsObjectService sourceObjService) throws IOException {
-    TreeSnapshot tree = sourceObjService.readTree(id);
-    for(GitFileEntry entry : tree.getData().values())
-      pullObject(entry.getId(), false, sourceObjService);
-    write(tree);
+  private int pullMissingObject(ObjectId id, GfsObjectService sourceObjService, Set<ObjectId> visited) throws IOException {
+    if(!visited.add(id) || hasObject(id))
+      return 0;
+    ObjectLoader loader = sourceObjService.open(id);
+    int ret = 1;
+    switch(loader.getType()) {
+      case OBJ_TREE:
+        byte[] tree = loader.getCachedBytes();
+        CanonicalTreeParser children = new CanonicalTreeParser();
+        children.reset(tree);
+        for(; !children.eof(); children.next())
+          if(!FileMode.GITLINK.equals(children.getEntryRawMode()))
+            ret += pullMissingObject(children.getEntryObjectId(), sourceObjService, visited);
+        insertObject(OBJ_TREE, tree);
+        break;
+      case OBJ_BLOB:
+        if(loader.isLarge()) {
+          try(InputStream in = loader.openStream()) {
+            inserterLock.lock();
+            try {
+              inserter.insert(OBJ_BLOB, loader.getSize(), in);
+            } finally {
+              inserterLock.unlock();
+            }
+          }
+        } else {
+          insertObject(OBJ_BLOB, loader.getCachedBytes());
+        }
+        break;
+      default:
+        throw new UnsupportedOperationException(id.toString());
+    }
+    return ret;
+  }
+
+  private void insertObject(int type, byte[] data) throws IOException {
+    inserterLock.lock();
+    try {
+      inserter.insert(type, data);
+    } finally {
+      inserterLock.unlock();
+    }
+  }
+
+  private boolean sharesStorageWith(GfsObjectService sourceObjService) throws IOException {
+    if(sourceObjService == this || sourceObjService.repo == repo)
+      return true;
+    ObjectStorage storage = getStorage();
+    ObjectStorage sourceStorage = sourceObjService.getStorage();
+    if(storage.directory == null || sourceStorage.directory == null)
+      return false;
+    return storage.directory.equals(sourceStorage.directory) || storage.alternates.contains(sourceStorage.directory);
+  }
+
+  /**
+   * Resolves the canonical object directory and its alternates once, since {@link #pullObject} checks them for every
+   * node of a copied tree.
+   */
+  @Nonnull
+  private ObjectStorage getStorage() throws IOException {
+    ObjectStorage ret = storage;
+    if(ret == null) {
+      File directory = objectDirectory(repo);
+      ret = new ObjectStorage(directory, directory != null ? alternates(directory) : Collections.<File>emptySet());
+      storage = ret;
+    }
+    return ret;
   }
 
-  private void pullBlob(ObjectId id, GfsObjectService sourceObjService) throws IOException {
-    write(sourceObjService.readBlob(id));
+  @Nullable
+  private static File objectDirectory(Repository repo) throws IOException {
+    ObjectDatabase db = repo.getObjectDatabase();
+    return db instanceof ObjectDirectory ? ((ObjectDirectory) db).getDirectory().getCanonicalFile() : null;
+  }
+
+  @Nonnull
+  private static Set<File> alternates(File objects) throws IOException {
+    File file = new File(objects, "info/alternates");
+    if(!file.isFile())
+      return Collections.emptySet();
+    Set<File> ret = new HashSet<>();
+    for(String line : Files.readAllLines(file.toPath(), Charset.forName("UTF-8"))) {
+      line = line.trim();
+      if(line.isEmpty() || line.startsWith("#"))
+        continue;
+      File alternate = new File(line);
+      if(!alternate.isAbsolute())
+        alternate = new File(objects, line);
+      ret.add(alternate.getCanonicalFile());
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static ObjectReader[] newReaders(Repository repo, int size) {
+    ObjectReader[] ret = new ObjectReader[size];
+    for(int i = 0; i < size; i++)
+      ret[i] = repo.newObjectReader();
+    return ret;
+  }
+
+  @Nonnull
+  private static Lock[] newLocks(int size) {
+    Lock[] ret = new Lock[size];
+    for(int i = 0; i < size; i++)
+      ret[i] = new ReentrantLock();
+    return ret;
+  }
+
+  /**
+   * Borrows a reader. A read-only service lends out readers from a bounded pool, creating them only when every pooled
+   * reader is busy, so that concurrent reads do not wait on each other's locks.
+   */
+  @Nonnull
+  private ObjectReader acquireReader() {
+    if(readerPermits != null) {
+      readerPermits.acquireUninterruptibly();
+      ObjectReader ret = idleReaders.poll();
+      return ret != null ? ret : repo.newObjectReader();
+    }
+    int slot = readerSlot();
+    readerLocks[slot].lock();
+    return readers[slot];
+  }
+
+  private void releaseReader(ObjectReader reader) {
+    if(readerPermits != null) {
+      idleReaders.offer(reader);
+      if(closed)
+        closeIdleReaders();
+      readerPermits.release();
+    } else
+      readerLocks[readerSlot()].unlock();
+  }
+
+  private void closeIdleReaders() {
+    ObjectReader reader;
+    while((reader = idleReaders.poll()) != null)
+      reader.close();
+  }
+
+  private int readerSlot() {
+    if(readers.length == 1)
+      return 0;
+    return (int) (Thread.currentThread().getId() % readers.length);
+  }
+
+  private void recordRead(long start) {
+    metrics.record(OBJECT_READ, System.nanoTime() - start);
+    metrics.increment(OBJECTS_READ, 1);
+  }
+
+  void recordWrite(long start, int count) {
+    metrics.record(OBJECT_WRITE, System.nanoTime() - start);
+    metrics.increment(OBJECTS_WRITTEN, count);
   }
 
   private void checkClosed() {
     if(closed) throw new ClosedFileSystemException();
   }
 
+  private void checkWritable() {
+    if(inserter == null) throw new ReadOnlyFileSystemException();
+  }
+
+  private static class ObjectStorage {
+
+    private final File directory;
+    private final Set<File> alternates;
+
+    private ObjectStorage(@Nullable File directory, Set<File> alternates) {
+      this.directory = directory;
+      this.alternates = alternates;
+    }
+
+  }
+
 }
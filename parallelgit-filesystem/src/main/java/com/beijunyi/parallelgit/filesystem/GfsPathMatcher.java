@@ -1,11 +1,17 @@
 package com.beijunyi.parallelgit.filesystem;
 
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.PathMatcher;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
-import com.beijunyi.parallelgit.filesystem.utils.GitGlobs;
+import com.beijunyi.parallelgit.filesystem.io.GfsNameFilter;
+import com.beijunyi.parallelgit.filesystem.utils.GitGlob;
+
+import static org.eclipse.jgit.util.RawParseUtils.decode;
 
 public class GfsPathMatcher implements PathMatcher {
 
@@ -13,26 +19,30 @@ public class GfsPathMatcher implements PathMatcher {
   private static final String REGEX_SYNTAX = "regex";
 
   private final Pattern pattern;
+  private final GitGlob glob;
 
-  private GfsPathMatcher(Pattern pattern) {
+  private GfsPathMatcher(@Nullable Pattern pattern, @Nullable GitGlob glob) {
     this.pattern = pattern;
+    this.glob = glob;
   }
 
   @Nonnull
   public static GfsPathMatcher newMatcher(Pattern pattern) {
-    return new GfsPathMatcher(pattern);
+    return new GfsPathMatcher(pattern, null);
+  }
+
+  @Nonnull
+  public static GfsPathMatcher newMatcher(GitGlob glob) {
+    return new GfsPathMatcher(null, glob);
   }
 
   @Nonnull
   public static GfsPathMatcher newMatcher(String syntax, String pattern) {
-    String expr;
-    if(syntax.equals(GLOB_SYNTAX)) {
-      expr = GitGlobs.toRegexPattern(pattern);
-    } else {
-      if(syntax.equals(REGEX_SYNTAX)) expr = pattern;
-      else throw new UnsupportedOperationException("Syntax '" + syntax + "' not recognized");
-    }
-    return newMatcher(Pattern.compile(expr));
+    if(syntax.equals(GLOB_SYNTAX))
+      return newMatcher(GitGlob.compile(pattern));
+    if(syntax.equals(REGEX_SYNTAX))
+      return newMatcher(Pattern.compile(pattern));
+    throw new UnsupportedOperationException("Syntax '" + syntax + "' not recognized");
   }
 
   @Nonnull
@@ -46,7 +56,73 @@ public class GfsPathMatcher implements PathMatcher {
 
   @Override
   public boolean matches(Path path) {
-    return pattern.matcher(path.toString()).matches();
+    if(glob != null && path instanceof GitPath) {
+      GitPath gitPath = (GitPath) path;
+      return glob.matches(gitPath.bytes(), gitPath.offset(), gitPath.length());
+    }
+    return matches(path.toString());
+  }
+
+  public boolean matches(CharSequence path) {
+    if(glob != null)
+      return glob.matches(path);
+    return pattern.matcher(path).matches();
+  }
+
+  /**
+   * Matches the UTF-8 encoded path in the given range. Globs run on the bytes directly.
+   */
+  public boolean matches(byte[] path, int offset, int length) {
+    if(glob != null)
+      return glob.matches(path, offset, length);
+    return matches(decode(path, offset, offset + length));
+  }
+
+  /**
+   * Returns {@code false} if no path below the given directory can match. Walkers use this to skip subtrees that
+   * fall outside the literal prefix of a glob.
+   */
+  public boolean matchesDescendantOf(Path dir) {
+    if(glob != null && dir instanceof GitPath) {
+      GitPath gitPath = (GitPath) dir;
+      return glob.matchesDescendantOf(gitPath.bytes(), gitPath.offset(), gitPath.length());
+    }
+    return matchesDescendantOf(dir.toString());
+  }
+
+  public boolean matchesDescendantOf(byte[] dir, int offset, int length) {
+    if(glob != null)
+      return glob.matchesDescendantOf(dir, offset, length);
+    return matchesDescendantOf(decode(dir, offset, offset + length));
+  }
+
+  public boolean matchesDescendantOf(CharSequence dir) {
+    if(glob != null)
+      return glob.matchesDescendantOf(dir);
+    String prefix = dir.length() > 0 && dir.charAt(dir.length() - 1) != '/' ? dir + "/" : dir.toString();
+    Matcher matcher = pattern.matcher(prefix);
+    matcher.matches();
+    return matcher.hitEnd();
+  }
+
+  /**
+   * Returns a directory stream filter that matches the file name of each entry against this pattern, the same way
+   * {@link java.nio.file.Files#newDirectoryStream(Path, String)} applies a glob.
+   */
+  @Nonnull
+  public GfsNameFilter toNameFilter() {
+    return new GfsNameFilter() {
+      @Override
+      public boolean acceptName(String name) {
+        return matches(name);
+      }
+
+      @Override
+      public boolean accept(Path entry) throws IOException {
+        Path name = entry.getFileName();
+        return name != null && matches(name);
+      }
+    };
   }
 
 }
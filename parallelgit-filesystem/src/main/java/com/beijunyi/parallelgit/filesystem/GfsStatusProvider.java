@@ -63,7 +63,7 @@ public class GfsStatusProvider implements AutoCloseable {
   }
 
   public boolean isInitialized() {
-    return branch != null;
+    return commit != null;
   }
 
   @Nullable
@@ -72,6 +72,19 @@ public class GfsStatusProvider implements AutoCloseable {
     return mergeNote;
   }
 
+  @Nonnull
+  GfsStatusProvider fork(GfsFileStore fileStore) {
+    checkClosed();
+    lock.lock();
+    try {
+      GfsStatusProvider ret = new GfsStatusProvider(fileStore, branch, commit);
+      ret.mergeNote = mergeNote;
+      return ret;
+    } finally {
+      lock.unlock();
+    }
+  }
+
   @Override
   public synchronized void close() {
     if(!closed) closed = true;
@@ -6,10 +6,17 @@ import java.nio.file.attribute.UserPrincipalLookupService;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.beijunyi.parallelgit.filesystem.io.GfsWalker;
+import com.beijunyi.parallelgit.filesystem.io.GfsWatchService;
 import com.beijunyi.parallelgit.filesystem.io.RootNode;
+import com.beijunyi.parallelgit.filesystem.metrics.GfsMetrics;
 import com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration;
 import com.beijunyi.parallelgit.utils.RefUtils;
 import org.eclipse.jgit.lib.ObjectId;
@@ -18,6 +25,7 @@ import org.eclipse.jgit.revwalk.RevCommit;
 
 import static com.beijunyi.parallelgit.filesystem.io.GfsFileAttributeView.Basic.BASIC_VIEW;
 import static com.beijunyi.parallelgit.filesystem.io.GfsFileAttributeView.Posix.POSIX_VIEW;
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsTimer.FLUSH;
 import static java.util.Arrays.asList;
 import static java.util.Collections.unmodifiableSet;
 import static org.eclipse.jgit.lib.Constants.MASTER;
@@ -30,18 +38,47 @@ public class GitFileSystem extends FileSystem {
   private final GfsObjectService objService;
   private final GfsFileStore fileStore;
   private final GfsStatusProvider statusProvider;
+  private final int writeBufferThreshold;
+  private final int readBufferThreshold;
+  private final GfsFlushPool flushPool;
+  private final Executor commandExecutor;
+  private final GitPath rootPath;
+  private final int pathInternCapacity;
+  private final ConcurrentMap<GitPath, GitPath> internedPaths;
+  private final AtomicInteger internedCount = new AtomicInteger();
 
   private boolean closed = false;
 
   public GitFileSystem(GfsConfiguration cfg, String sid) throws IOException {
     this.sid = sid;
-    objService = new GfsObjectService(cfg.repository());
+    objService = new GfsObjectService(cfg);
     RevCommit commit = cfg.commit();
     String branch = cfg.branch();
     if(branch == null && commit == null)
       branch = RefUtils.fullBranchName(MASTER);
     fileStore = new GfsFileStore(commit, objService);
     statusProvider = new GfsStatusProvider(fileStore, branch, commit);
+    writeBufferThreshold = cfg.writeBufferThreshold();
+    readBufferThreshold = cfg.readBufferThreshold();
+    flushPool = cfg.flushParallelism() > 1 ? new GfsFlushPool(cfg.flushParallelism()) : null;
+    commandExecutor = cfg.commandExecutor();
+    rootPath = new GitPath(this, "/");
+    pathInternCapacity = cfg.pathInternCapacity();
+    internedPaths = pathInternCapacity > 0 ? new ConcurrentHashMap<GitPath, GitPath>() : null;
+  }
+
+  GitFileSystem(GitFileSystem source, String sid) {
+    this.sid = sid;
+    objService = source.objService.retain();
+    fileStore = new GfsFileStore(source.fileStore.getRoot().fork(), objService);
+    statusProvider = source.statusProvider.fork(fileStore);
+    writeBufferThreshold = source.writeBufferThreshold;
+    readBufferThreshold = source.readBufferThreshold;
+    flushPool = source.flushPool != null ? source.flushPool.retain() : null;
+    commandExecutor = source.commandExecutor;
+    rootPath = new GitPath(this, "/");
+    pathInternCapacity = source.pathInternCapacity;
+    internedPaths = pathInternCapacity > 0 ? new ConcurrentHashMap<GitPath, GitPath>() : null;
   }
 
   @Nonnull
@@ -54,6 +91,9 @@ public class GitFileSystem extends FileSystem {
   public synchronized void close() {
     if(!closed) {
       closed = true;
+      fileStore.getRoot().closeWatchServices();
+      if(flushPool != null)
+        flushPool.close();
       objService.close();
       statusProvider.close();
       GitFileSystemProvider.getDefault().unregister(this);
@@ -67,7 +107,7 @@ public class GitFileSystem extends FileSystem {
 
   @Override
   public boolean isReadOnly() {
-    return false;
+    return objService.isReadOnly();
   }
 
   @Nonnull
@@ -126,10 +166,10 @@ public class GitFileSystem extends FileSystem {
     throw new UnsupportedOperationException();
   }
 
-  @Nullable
+  @Nonnull
   @Override
-  public WatchService newWatchService() throws UnsupportedOperationException {
-    throw new UnsupportedOperationException();
+  public WatchService newWatchService() {
+    return new GfsWatchService(this);
   }
 
   @Nonnull
@@ -144,7 +184,30 @@ public class GitFileSystem extends FileSystem {
 
   @Nonnull
   public GitPath getRootPath() {
-    return getPath("/");
+    return rootPath;
+  }
+
+  /**
+   * Returns the shared instance of a directory path when path interning is enabled, so that the parents of the paths
+   * under the same directory share one path object, its string form and its own parent chain. Once the capacity is
+   * reached, the directories already interned are kept and new ones are returned as they are.
+   */
+  @Nonnull
+  GitPath internDirectory(GitPath dir) {
+    ConcurrentMap<GitPath, GitPath> interned = internedPaths;
+    if(interned == null)
+      return dir;
+    GitPath ret = interned.get(dir);
+    if(ret != null)
+      return ret;
+    if(internedCount.get() >= pathInternCapacity)
+      return dir;
+    ret = dir.compact();
+    GitPath existing = interned.putIfAbsent(ret, ret);
+    if(existing != null)
+      return existing;
+    internedCount.incrementAndGet();
+    return ret;
   }
 
   @Nonnull
@@ -162,11 +225,51 @@ public class GitFileSystem extends FileSystem {
     return statusProvider;
   }
 
+  @Nonnull
+  public GfsMetrics getMetrics() {
+    return objService.getMetrics();
+  }
+
+  public int getWriteBufferThreshold() {
+    return writeBufferThreshold;
+  }
+
+  public int getReadBufferThreshold() {
+    return readBufferThreshold;
+  }
+
+  @Nullable
+  public Executor getCommandExecutor() {
+    return commandExecutor;
+  }
+
+  @Nonnull
+  public GfsBatchEdit edit() {
+    return new GfsBatchEdit(this);
+  }
+
+  @Nonnull
+  public GfsWalker walk(String first, String... more) {
+    return new GfsWalker(getPath(first, more));
+  }
+
+  /**
+   * Creates an independent file system with the same branch, head commit and file tree as this one. The two file
+   * systems share the object service and the unmodified parts of the tree; changes made to either of them afterwards
+   * are not visible to the other.
+   */
+  @Nonnull
+  public GitFileSystem fork() {
+    return provider().fork(this);
+  }
+
   @Nonnull
   public ObjectId flush() throws IOException {
     RootNode root = fileStore.getRoot();
-    ObjectId ret = root.getObjectId(true);
+    long start = System.nanoTime();
+    ObjectId ret = flushPool != null ? root.flush(flushPool.getPool()) : root.getObjectId(true);
     objService.flush();
+    getMetrics().record(FLUSH, System.nanoTime() - start);
     return ret;
   }
 
@@ -61,6 +61,14 @@ public class GitFileSystemProvider extends FileSystemProvider {
     return ret;
   }
 
+  @Nonnull
+  public GitFileSystem fork(GitFileSystem source) {
+    String sid = randomUUID().toString();
+    GitFileSystem ret = new GitFileSystem(source, sid);
+    FILE_SYSTEMS.put(sid, ret);
+    return ret;
+  }
+
   public void unregister(GitFileSystem gfs) {
     FILE_SYSTEMS.remove(gfs.getSessionId());
   }
@@ -100,6 +108,7 @@ public class GitFileSystemProvider extends FileSystemProvider {
       amended.add(option);
     }
     if(!amended.contains(WRITE)) amended.add(READ);
+    else if(path.getFileSystem().isReadOnly()) throw new ReadOnlyFileSystemException();
     return GfsIO.newByteChannel(((GitPath)path).toRealPath(), amended, asList(attrs));
   }
 
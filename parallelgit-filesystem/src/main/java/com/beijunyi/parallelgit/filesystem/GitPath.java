@@ -1,6 +1,7 @@
 package com.beijunyi.parallelgit.filesystem;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.ref.SoftReference;
 import java.net.URI;
 import java.nio.ByteBuffer;
@@ -13,30 +14,79 @@ import java.util.NoSuchElementException;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.beijunyi.parallelgit.filesystem.io.GfsWatchService;
 import com.beijunyi.parallelgit.filesystem.utils.GfsUriBuilder;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static org.eclipse.jgit.lib.Constants.CHARSET;
 import static org.eclipse.jgit.util.RawParseUtils.decode;
 
+/**
+ * A path of a {@link GitFileSystem}. A path is a view over a range of an encoded byte array, so names, parents and
+ * subpaths share the array of the path they are taken from instead of copying it. Parents are cached, and directory
+ * prefixes can be interned per file system.
+ */
 public class GitPath implements Path {
 
   private static ThreadLocal<SoftReference<CharsetEncoder>> encoder = new ThreadLocal<>();
+  private static final byte[] EMPTY = new byte[0];
 
   private final GitFileSystem gfs;
   private final byte[] path;
+  private final int offset;
+  private final int length;
 
   private volatile int[] offsets;
   private volatile String stringValue;
+  private volatile int hash;
+  private volatile GitPath parent;
 
   GitPath(GitFileSystem gfs, byte[] path) {
+    this(gfs, path, 0, path.length);
+  }
+
+  private GitPath(GitFileSystem gfs, byte[] path, int offset, int length) {
     this.gfs = gfs;
     this.path = path;
+    this.offset = offset;
+    this.length = length;
   }
 
   GitPath(GitFileSystem gfs, String input) {
     this(gfs, encode(normalizeAndCheck(input)));
   }
 
+  @Nonnull
+  byte[] bytes() {
+    return path;
+  }
+
+  int offset() {
+    return offset;
+  }
+
+  int length() {
+    return length;
+  }
+
+  @Nonnull
+  GitPath compact() {
+    if(offset == 0 && length == path.length)
+      return this;
+    GitPath ret = new GitPath(gfs, Arrays.copyOfRange(path, offset, offset + length));
+    ret.parent = parent;
+    return ret;
+  }
+
+  private byte byteAt(int index) {
+    return path[offset + index];
+  }
+
+  @Nonnull
+  private GitPath view(int begin, int len) {
+    return new GitPath(gfs, path, offset + begin, len);
+  }
+
   @Nonnull
   private static String normalizeAndCheck(String input) {
     int n = input.length();
@@ -84,10 +134,13 @@ public class GitPath implements Path {
 
   @Nonnull
   private static byte[] encode(String input) {
+    byte[] ascii = encodeAscii(input);
+    if(ascii != null)
+      return ascii;
     SoftReference<CharsetEncoder> ref = encoder.get();
     CharsetEncoder ce = (ref != null) ? ref.get() : null;
     if(ce == null) {
-      ce = Charset.defaultCharset()
+      ce = CHARSET
              .newEncoder()
              .onMalformedInput(CodingErrorAction.REPORT)
              .onUnmappableCharacter(CodingErrorAction.REPORT);
@@ -122,6 +175,19 @@ public class GitPath implements Path {
     return ba;
   }
 
+  @Nullable
+  private static byte[] encodeAscii(String input) {
+    int len = input.length();
+    byte[] ret = new byte[len];
+    for(int i = 0; i < len; i++) {
+      char c = input.charAt(i);
+      if(c >= 0x80)
+        return null;
+      ret[i] = (byte) c;
+    }
+    return ret;
+  }
+
   @Nonnull
   @Override
   public GitFileSystem getFileSystem() {
@@ -135,7 +201,7 @@ public class GitPath implements Path {
 
   @Override
   public boolean isAbsolute() {
-    return path.length > 0 && path[0] == '/';
+    return length > 0 && byteAt(0) == '/';
   }
 
   @Nonnull
@@ -154,19 +220,19 @@ public class GitPath implements Path {
       return null;
 
     // one name element and no root component
-    if(count == 1 && path.length > 0 && path[0] != '/')
+    if(count == 1 && length > 0 && byteAt(0) != '/')
       return this;
 
     int lastOffset = offsets[count - 1];
-    int len = path.length - lastOffset;
-    byte[] result = new byte[len];
-    System.arraycopy(path, lastOffset, result, 0, len);
-    return new GitPath(getFileSystem(), result);
+    return view(lastOffset, length - lastOffset);
   }
 
   @Nullable
   @Override
   public GitPath getParent() {
+    GitPath ret = parent;
+    if(ret != null)
+      return ret;
     initOffsets();
 
     int count = offsets.length;
@@ -177,11 +243,11 @@ public class GitPath implements Path {
     if(len < 0)
       return null;
     if(len == 0)
-      return gfs.getRootPath();
-
-    byte[] result = new byte[len];
-    System.arraycopy(path, 0, result, 0, len);
-    return new GitPath(gfs, result);
+      ret = gfs.getRootPath();
+    else
+      ret = gfs.internDirectory(view(0, len));
+    parent = ret;
+    return ret;
   }
 
   @Override
@@ -202,14 +268,11 @@ public class GitPath implements Path {
     int begin = offsets[index];
     int len;
     if(index == (offsets.length-1)) 
-      len = path.length - begin;
+      len = length - begin;
     else 
       len = offsets[index+1] - begin - 1;
 
-    // construct result
-    byte[] result = new byte[len];
-    System.arraycopy(path, begin, result, 0, len);
-    return new GitPath(getFileSystem(), result);
+    return view(begin, len);
   }
 
   @Nonnull
@@ -232,15 +295,12 @@ public class GitPath implements Path {
     int begin = offsets[beginIndex];
     int len;
     if(endIndex == offsets.length) {
-      len = path.length - begin;
+      len = length - begin;
     } else {
       len = offsets[endIndex] - begin - 1;
     }
 
-    // construct result
-    byte[] result = new byte[len];
-    System.arraycopy(path, begin, result, 0, len);
-    return new GitPath(getFileSystem(), result);
+    return view(begin, len);
   }
 
   @Override
@@ -248,7 +308,7 @@ public class GitPath implements Path {
     GitPath that = (GitPath) other;
 
     // other path is longer
-    if(that.path.length > path.length)
+    if(that.length > length)
       return false;
 
     int thisOffsetCount = getNameCount();
@@ -263,27 +323,25 @@ public class GitPath implements Path {
       return false;
 
     // same number of elements so must be exact match
-    if((thatOffsetCount == thisOffsetCount) && (path.length != that.path.length))
+    if((thatOffsetCount == thisOffsetCount) && (length != that.length))
       return false;
 
     // check offsets of elements match
     for (int i=0; i<thatOffsetCount; i++) {
-      Integer o1 = offsets[i];
-      Integer o2 = that.offsets[i];
-      if(!o1.equals(o2))
+      if(offsets[i] != that.offsets[i])
         return false;
     }
 
     // offsets match so need to compare bytes
     int i=0;
-    while (i < that.path.length) {
-      if(this.path[i] != that.path[i])
+    while (i < that.length) {
+      if(this.byteAt(i) != that.byteAt(i))
         return false;
       i++;
     }
 
     // final check that match is on name boundary
-    return !(i < path.length && this.path[i] != '/');
+    return !(i < length && this.byteAt(i) != '/');
 
   }
 
@@ -296,8 +354,8 @@ public class GitPath implements Path {
   public boolean endsWith(Path other) {
     GitPath that = (GitPath) other;
 
-    int thisLen = path.length;
-    int thatLen = that.path.length;
+    int thisLen = length;
+    int thatLen = that.length;
 
     // other path is longer
     if(thatLen > thisLen)
@@ -340,7 +398,7 @@ public class GitPath implements Path {
     if((thatLen - thatPos) != (thisLen - thisPos))
       return false;
     while (thatPos < thatLen) {
-      if(this.path[thisPos++] != that.path[thatPos++])
+      if(this.byteAt(thisPos++) != that.byteAt(thatPos++))
         return false;
     }
 
@@ -373,19 +431,19 @@ public class GitPath implements Path {
       int begin = offsets[i];
       int len;
       if(i == (offsets.length - 1))
-        len = path.length - begin;
+        len = length - begin;
       else
         len = offsets[i+1] - begin - 1;
 
       size[i] = len;
 
-      if(path[begin] == '.') {
+      if(byteAt(begin) == '.') {
         if(len == 1) {
           ignore[i] = true;  // ignore  "."
           remaining--;
         }
         else {
-          if(path[begin+1] == '.')   // ".." found
+          if(byteAt(begin+1) == '.')   // ".." found
             hasDotDot = true;
         }
       }
@@ -408,7 +466,7 @@ public class GitPath implements Path {
           }
 
           int begin = offsets[i];
-          if(path[begin] != '.' || path[begin + 1] != '.') {
+          if(byteAt(begin) != '.' || byteAt(begin + 1) != '.') {
             prevName = i;
             continue;
           }
@@ -467,7 +525,7 @@ public class GitPath implements Path {
       result[pos++] = '/';
     for (int i=0; i<count; i++) {
       if(!ignore[i]) {
-        System.arraycopy(path, offsets[i], result, pos, size[i]);
+        System.arraycopy(path, offset + offsets[i], result, pos, size[i]);
         pos += size[i];
         if(--remaining > 0) {
           result[pos++] = '/';
@@ -478,36 +536,36 @@ public class GitPath implements Path {
   }
 
   @Nonnull
-  private static byte[] resolve(byte[] base, byte[] child) {
-    int baseLength = base.length;
-    int childLength = child.length;
-    if(childLength == 0)
-      return base;
-    if(baseLength == 0 || child[0] == '/')
-      return child;
+  @Override
+  public GitPath resolve(Path path) {
+    GitPath other = (GitPath) path;
+    if(other.isAbsolute() || isEmpty())
+      return other;
+    if(other.isEmpty())
+      return this;
     byte[] result;
-    if(baseLength == 1 && base[0] == '/') {
-      result = new byte[childLength + 1];
-      result[0] = '/';
-      System.arraycopy(child, 0, result, 1, childLength);
+    int pos;
+    if(isRoot()) {
+      result = new byte[other.length + 1];
+      pos = 1;
     } else {
-      result = new byte[baseLength + 1 + childLength];
-      System.arraycopy(base, 0, result, 0, baseLength);
-      result[base.length] = '/';
-      System.arraycopy(child, 0, result, baseLength+1, childLength);
+      result = new byte[length + 1 + other.length];
+      System.arraycopy(this.path, offset, result, 0, length);
+      pos = length + 1;
     }
-    return result;
+    result[pos - 1] = '/';
+    System.arraycopy(other.path, other.offset, result, pos, other.length);
+    GitPath ret = new GitPath(gfs, result);
+    if(other.isSingleName())
+      ret.parent = gfs.internDirectory(this);
+    return ret;
   }
 
-  @Nonnull
-  @Override
-  public GitPath resolve(Path path) {
-    GitPath gitPath = (GitPath) path;
-    byte[] other = gitPath.path;
-    if(other.length > 0 && other[0] == '/')
-      return gitPath;
-    byte[] result = resolve(this.path, other);
-    return new GitPath(getFileSystem(), result);
+  private boolean isSingleName() {
+    for(int i = 0; i < length; i++)
+      if(byteAt(i) == '/')
+        return false;
+    return length > 0;
   }
 
   @Override
@@ -562,7 +620,7 @@ public class GitPath implements Path {
       // result is a  "../" for each remaining name in base
       // followed by the remaining names in other. If the remainder is
       // the empty path then we don't add the final trailing slash.
-      int len = dotdots * 3 + remainder.path.length;
+      int len = dotdots * 3 + remainder.length;
       byte[] result = new byte[len];
       int pos = 0;
       while (dotdots > 0) {
@@ -571,7 +629,7 @@ public class GitPath implements Path {
         result[pos++] = (byte)'/';
         dotdots--;
       }
-      System.arraycopy(remainder.path, 0, result, pos, remainder.path.length);
+      System.arraycopy(remainder.path, remainder.offset, result, pos, remainder.length);
       return new GitPath(getFileSystem(), result);
     } else {
       // no remaining names in other so result is simply a sequence of ".."
@@ -615,16 +673,20 @@ public class GitPath implements Path {
     throw new UnsupportedOperationException();
   }
 
-  @Nullable
+  @Nonnull
   @Override
-  public WatchKey register(@Nullable WatchService watcher, @Nullable WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) throws UnsupportedOperationException {
-    throw new UnsupportedOperationException();
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) throws IOException {
+    if(watcher == null)
+      throw new NullPointerException();
+    if(!(watcher instanceof GfsWatchService))
+      throw new ProviderMismatchException();
+    return ((GfsWatchService) watcher).register(this, events, modifiers);
   }
 
-  @Nullable
+  @Nonnull
   @Override
-  public WatchKey register(@Nullable WatchService watcher, WatchEvent.Kind<?>... events) throws UnsupportedOperationException {
-    throw new UnsupportedOperationException();
+  public WatchKey register(WatchService watcher, WatchEvent.Kind<?>... events) throws IOException {
+    return register(watcher, events, new WatchEvent.Modifier[0]);
   }
 
   @Nonnull
@@ -656,8 +718,8 @@ public class GitPath implements Path {
   public int compareTo(Path other) {
     GitPath that = (GitPath) other;
 
-    int len1 = path.length;
-    int len2 = that.path.length;
+    int len1 = length;
+    int len2 = that.length;
 
     int n = Math.min(len1, len2);
     byte v1[] = path;
@@ -665,8 +727,8 @@ public class GitPath implements Path {
 
     int k = 0;
     while (k < n) {
-      int c1 = v1[k] & 0xff;
-      int c2 = v2[k] & 0xff;
+      int c1 = v1[offset + k] & 0xff;
+      int c2 = v2[that.offset + k] & 0xff;
       if(c1 != c2)
         return c1 - c2;
       k++;
@@ -677,7 +739,8 @@ public class GitPath implements Path {
   @Nonnull
   @Override
   public String toString() {
-    if(stringValue == null)stringValue = decode(CHARSET, path);
+    if(stringValue == null)
+      stringValue = isAscii() ? new String(path, offset, length, US_ASCII) : decode(CHARSET, path, offset, offset + length);
     return stringValue;
   }
 
@@ -689,11 +752,11 @@ public class GitPath implements Path {
       count = 0;
       index = 0;
       if(!isEmpty()) {
-        while (index < path.length) {
-          byte c = path[index++];
+        while (index < length) {
+          byte c = byteAt(index++);
           if(c != '/') {
             count++;
-            while (index < path.length && path[index] != '/')
+            while (index < length && byteAt(index) != '/')
               index++;
           }
         }
@@ -703,13 +766,13 @@ public class GitPath implements Path {
       int[] result = new int[count];
       count = 0;
       index = 0;
-      while (index < path.length) {
-        byte c = path[index];
+      while (index < length) {
+        byte c = byteAt(index);
         if(c == '/')
           index++;
         else {
           result[count++] = index++;
-          while(index < path.length && path[index] != '/')
+          while(index < length && byteAt(index) != '/')
             index++;
         }
       }
@@ -730,25 +793,45 @@ public class GitPath implements Path {
 
     GitPath gitPath = (GitPath)obj;
 
-    return gfs.equals(gitPath.gfs) && Arrays.equals(path, gitPath.path);
+    if(length != gitPath.length || !gfs.equals(gitPath.gfs))
+      return false;
+    for(int i = 0; i < length; i++)
+      if(byteAt(i) != gitPath.byteAt(i))
+        return false;
+    return true;
   }
 
   @Override
   public int hashCode() {
-    return 31 * gfs.hashCode() + Arrays.hashCode(path);
+    int ret = hash;
+    if(ret == 0) {
+      int bytesHash = 1;
+      for(int i = 0; i < length; i++)
+        bytesHash = 31 * bytesHash + byteAt(i);
+      ret = 31 * gfs.hashCode() + bytesHash;
+      hash = ret;
+    }
+    return ret;
   }
 
   public boolean isEmpty() {
-    return path.length == 0;
+    return length == 0;
   }
 
   public boolean isRoot() {
-    return path.length == 1 && path[0] == '/';
+    return length == 1 && byteAt(0) == '/';
+  }
+
+  private boolean isAscii() {
+    for(int i = 0; i < length; i++)
+      if(byteAt(i) < 0)
+        return false;
+    return true;
   }
 
   @Nonnull
   private GitPath emptyPath() {
-    return new GitPath(gfs, new byte[0]);
+    return new GitPath(gfs, EMPTY);
   }
 
 }
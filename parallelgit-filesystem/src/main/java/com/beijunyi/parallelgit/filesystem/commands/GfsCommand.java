@@ -1,11 +1,18 @@
 package com.beijunyi.parallelgit.filesystem.commands;
 
 import java.io.IOException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.beijunyi.parallelgit.filesystem.GfsFileStore;
 import com.beijunyi.parallelgit.filesystem.GfsStatusProvider;
 import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.metrics.GfsTimer;
 import org.eclipse.jgit.lib.Repository;
 
 public abstract class GfsCommand<Result extends GfsCommandResult> {
@@ -25,20 +32,56 @@ public abstract class GfsCommand<Result extends GfsCommandResult> {
   }
 
   @Nonnull
-  public synchronized Result execute() throws IOException {
+  public Result execute() throws IOException {
+    if(gfs.isReadOnly())
+      throw new ReadOnlyFileSystemException();
     checkExecuted();
-    executed = true;
+    GfsTimer timer = getTimer();
+    long start = System.nanoTime();
     try(GfsStatusProvider.Update update = status.prepareUpdate()) {
       return doExecute(update);
+    } finally {
+      if(timer != null)
+        gfs.getMetrics().record(timer, System.nanoTime() - start);
     }
   }
 
+  /**
+   * Executes this command on the executor configured for the file system. Commands on the same file system are still
+   * applied one at a time; the returned future completes when this command has been applied.
+   */
+  @Nonnull
+  public Future<Result> executeAsync() {
+    Executor executor = gfs.getCommandExecutor();
+    if(executor == null)
+      throw new IllegalStateException("No command executor configured");
+    return executeAsync(executor);
+  }
+
+  @Nonnull
+  public Future<Result> executeAsync(Executor executor) {
+    FutureTask<Result> task = new FutureTask<>(new Callable<Result>() {
+      @Override
+      public Result call() throws IOException {
+        return execute();
+      }
+    });
+    executor.execute(task);
+    return task;
+  }
+
   @Nonnull
   protected abstract Result doExecute(GfsStatusProvider.Update update) throws IOException;
 
-  private void checkExecuted() {
+  @Nullable
+  protected GfsTimer getTimer() {
+    return null;
+  }
+
+  private synchronized void checkExecuted() {
     if(executed)
       throw new IllegalStateException("Command already executed");
+    executed = true;
   }
 
 }
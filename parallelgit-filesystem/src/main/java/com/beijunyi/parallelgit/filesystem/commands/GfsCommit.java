@@ -9,6 +9,7 @@ import com.beijunyi.parallelgit.filesystem.GfsStatusProvider;
 import com.beijunyi.parallelgit.filesystem.GitFileSystem;
 import com.beijunyi.parallelgit.filesystem.exceptions.UnsuccessfulOperationException;
 import com.beijunyi.parallelgit.filesystem.merge.MergeNote;
+import com.beijunyi.parallelgit.filesystem.metrics.GfsTimer;
 import com.beijunyi.parallelgit.utils.BranchUtils;
 import com.beijunyi.parallelgit.utils.CommitUtils;
 import org.eclipse.jgit.lib.AnyObjectId;
@@ -16,6 +17,7 @@ import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.PersonIdent;
 import org.eclipse.jgit.revwalk.RevCommit;
 
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsTimer.COMMIT;
 import static java.util.Arrays.asList;
 import static java.util.Collections.*;
 
@@ -48,6 +50,12 @@ public class GfsCommit extends GfsCommand<GfsCommit.Result> {
     return Result.success(resultCommit);
   }
 
+  @Nullable
+  @Override
+  protected GfsTimer getTimer() {
+    return COMMIT;
+  }
+
   @Nonnull
   public GfsCommit author(@Nullable PersonIdent author) {
     this.author = author;
@@ -11,6 +11,7 @@ import com.beijunyi.parallelgit.filesystem.exceptions.GfsCheckoutConflictExcepti
 import com.beijunyi.parallelgit.filesystem.exceptions.NoBranchException;
 import com.beijunyi.parallelgit.filesystem.merge.MergeConflict;
 import com.beijunyi.parallelgit.filesystem.merge.MergeNote;
+import com.beijunyi.parallelgit.filesystem.metrics.GfsTimer;
 import com.beijunyi.parallelgit.utils.BranchUtils;
 import com.beijunyi.parallelgit.utils.CommitUtils;
 import org.eclipse.jgit.dircache.DirCache;
@@ -26,6 +27,7 @@ import static com.beijunyi.parallelgit.filesystem.io.GfsTreeIterator.iterateRoot
 import static com.beijunyi.parallelgit.filesystem.merge.GfsMergeCheckout.handleConflicts;
 import static com.beijunyi.parallelgit.filesystem.merge.MergeConflict.readConflicts;
 import static com.beijunyi.parallelgit.filesystem.merge.MergeNote.mergeSquash;
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsTimer.*;
 import static com.beijunyi.parallelgit.utils.CommitUtils.*;
 import static com.beijunyi.parallelgit.utils.RefUtils.getBranchRef;
 import static java.util.Collections.*;
@@ -76,6 +78,12 @@ public class GfsMerge extends GfsCommand<GfsMerge.Result> {
     return threeWayMerge(update);
   }
 
+  @Nullable
+  @Override
+  protected GfsTimer getTimer() {
+    return MERGE;
+  }
+
   @Nonnull
   public GfsMerge source(@Nullable String branch) {
     this.source = branch;
@@ -171,7 +179,9 @@ public class GfsMerge extends GfsCommand<GfsMerge.Result> {
   @Nonnull
   private Result threeWayMerge(GfsStatusProvider.Update update) throws IOException {
     Merger merger = prepareMerger();
+    long start = System.nanoTime();
     boolean success = merger.merge(headCommit, sourceHeadCommit);
+    gfs.getMetrics().record(MERGE_RESOLVE, System.nanoTime() - start);
     if(success) {
       return updateFileSystemStatus(update, merger);
     } else {
@@ -0,0 +1,474 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.utils.io.GitFileEntry;
+import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+
+import static com.beijunyi.parallelgit.utils.io.GitFileEntry.newEntry;
+import static java.util.Collections.*;
+import static org.eclipse.jgit.lib.Constants.OBJECT_ID_LENGTH;
+
+/**
+ * The children of a {@link DirectoryNode}. Entries loaded from a tree are kept in sorted parallel arrays of encoded
+ * names, raw ids and modes, and a {@link Node} is only created for an entry when it is first accessed or mutated.
+ * Children added afterwards are kept in a sorted map. Names are ordered by their UTF-8 encoding.
+ * <p>
+ * The children of a read-only file system never change after they are loaded, so they are read without locking and
+ * nodes are materialized with a compare-and-set. Writable children are guarded by a lock.
+ */
+final class DirectoryChildren {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final byte[][] NO_NAMES = new byte[0][];
+
+  private static final Comparator<String> NAME_ORDER = new Comparator<String>() {
+    @Override
+    public int compare(String s1, String s2) {
+      return compareNames(s1, s2);
+    }
+  };
+
+  private final DirectoryNode dir;
+  private final ObjectId tree;
+  private final byte[][] names;
+  private final byte[] ids;
+  private final int[] modes;
+  private final AtomicReferenceArray<Node> nodes;
+  private final boolean[] removed;
+  private final NavigableMap<String, Node> added = new TreeMap<>(NAME_ORDER);
+  private final Lock lock;
+  private Map<Node, String> nodeNames;
+  private int size;
+
+  private DirectoryChildren(DirectoryNode dir, @Nullable ObjectId tree, byte[][] names, byte[] ids, int[] modes) {
+    this.dir = dir;
+    this.tree = tree;
+    this.names = names;
+    this.ids = ids;
+    this.modes = modes;
+    this.nodes = new AtomicReferenceArray<>(names.length);
+    this.removed = new boolean[names.length];
+    this.size = names.length;
+    this.lock = dir.getObjectService().isReadOnly() ? null : new ReentrantLock();
+  }
+
+  @Nonnull
+  static DirectoryChildren empty(DirectoryNode dir) {
+    return new DirectoryChildren(dir, null, NO_NAMES, new byte[0], new int[0]);
+  }
+
+  @Nonnull
+  static DirectoryChildren fromTree(TreeSnapshot tree, DirectoryNode dir) throws IOException {
+    SortedMap<String, GitFileEntry> entries = tree.getData();
+    if(!isSortedByEncoding(entries.keySet())) {
+      SortedMap<String, GitFileEntry> sorted = new TreeMap<>(NAME_ORDER);
+      sorted.putAll(entries);
+      entries = sorted;
+    }
+    int count = entries.size();
+    byte[][] names = new byte[count][];
+    byte[] ids = new byte[count * OBJECT_ID_LENGTH];
+    int[] modes = new int[count];
+    int i = 0;
+    for(Map.Entry<String, GitFileEntry> child : entries.entrySet()) {
+      GitFileEntry entry = child.getValue();
+      names[i] = encode(child.getKey());
+      entry.getId().copyRawTo(ids, i * OBJECT_ID_LENGTH);
+      modes[i] = entry.getMode().getBits();
+      i++;
+    }
+    return new DirectoryChildren(dir, tree.getId(), names, ids, modes);
+  }
+
+  /**
+   * Tells whether the sorted arrays were built from the given tree.
+   */
+  boolean isLoadedFrom(ObjectId tree) {
+    return tree.equals(this.tree);
+  }
+
+  /**
+   * Copies the children into another directory. The sorted arrays are immutable and are shared, and only the nodes
+   * already materialized are forked.
+   */
+  @Nonnull
+  DirectoryChildren fork(DirectoryNode dir) {
+    lock();
+    try {
+      DirectoryChildren ret = new DirectoryChildren(dir, tree, names, ids, modes);
+      System.arraycopy(removed, 0, ret.removed, 0, removed.length);
+      for(int i = 0; i < names.length; i++) {
+        Node node = nodes.get(i);
+        if(node != null)
+          ret.nodes.set(i, node.fork(dir));
+      }
+      for(Map.Entry<String, Node> child : added.entrySet())
+        ret.added.put(child.getKey(), child.getValue().fork(dir));
+      ret.size = size;
+      return ret;
+    } finally {
+      unlock();
+    }
+  }
+
+  int size() {
+    lock();
+    try {
+      return size;
+    } finally {
+      unlock();
+    }
+  }
+
+  boolean contains(String name) {
+    lock();
+    try {
+      if(added.containsKey(name))
+        return true;
+      int index = indexOf(name);
+      return index >= 0 && !removed[index];
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nullable
+  Node get(String name) throws IOException {
+    lock();
+    try {
+      Node ret = added.get(name);
+      if(ret != null)
+        return ret;
+      int index = indexOf(name);
+      return index >= 0 && !removed[index] ? materialize(index) : null;
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nullable
+  Node put(String name, Node node) {
+    lock();
+    try {
+      int index = indexOf(name);
+      if(index >= 0) {
+        Node ret = nodes.get(index);
+        if(removed[index]) {
+          removed[index] = false;
+          size++;
+        }
+        nodes.set(index, node);
+        updateNodeName(ret, node, name);
+        return ret;
+      }
+      Node ret = added.put(name, node);
+      if(ret == null)
+        size++;
+      updateNodeName(ret, node, name);
+      return ret;
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nullable
+  Node remove(String name) throws IOException {
+    lock();
+    try {
+      Node ret = added.remove(name);
+      if(ret != null) {
+        size--;
+        updateNodeName(ret, null, name);
+        return ret;
+      }
+      int index = indexOf(name);
+      if(index < 0 || removed[index])
+        return null;
+      ret = materialize(index);
+      nodes.set(index, null);
+      removed[index] = true;
+      size--;
+      updateNodeName(ret, null, name);
+      return ret;
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nonnull
+  List<String> names() {
+    lock();
+    try {
+      List<String> ret = new ArrayList<>(size);
+      Iterator<String> addedNames = added.keySet().iterator();
+      String nextAdded = addedNames.hasNext() ? addedNames.next() : null;
+      for(int i = 0; i < names.length; i++) {
+        if(removed[i])
+          continue;
+        String name = decode(names[i]);
+        while(nextAdded != null && compareNames(nextAdded, name) < 0) {
+          ret.add(nextAdded);
+          nextAdded = addedNames.hasNext() ? addedNames.next() : null;
+        }
+        ret.add(name);
+      }
+      while(nextAdded != null) {
+        ret.add(nextAdded);
+        nextAdded = addedNames.hasNext() ? addedNames.next() : null;
+      }
+      return unmodifiableList(ret);
+    } finally {
+      unlock();
+    }
+  }
+
+  /**
+   * Returns a weakly consistent iterator over the names in order. Names are produced one at a time from the sorted
+   * arrays and the added map without copying them; children added or removed while iterating may or may not be seen.
+   */
+  @Nonnull
+  Iterator<String> nameIterator() {
+    return new NameIterator();
+  }
+
+  @Nonnull
+  SortedMap<String, Node> loaded() {
+    lock();
+    try {
+      SortedMap<String, Node> ret = new TreeMap<>(added);
+      for(int i = 0; i < names.length; i++) {
+        Node node = nodes.get(i);
+        if(node != null)
+          ret.put(decode(names[i]), node);
+      }
+      return unmodifiableSortedMap(ret);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nonnull
+  SortedMap<String, GitFileEntry> pending() {
+    lock();
+    try {
+      SortedMap<String, GitFileEntry> ret = new TreeMap<>();
+      for(int i = 0; i < names.length; i++)
+        if(nodes.get(i) == null && !removed[i])
+          ret.put(decode(names[i]), entryAt(i));
+      return unmodifiableSortedMap(ret);
+    } finally {
+      unlock();
+    }
+  }
+
+  boolean hasPending() {
+    lock();
+    try {
+      for(int i = 0; i < names.length; i++)
+        if(nodes.get(i) == null && !removed[i])
+          return true;
+      return false;
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nullable
+  Node peek(String name) {
+    lock();
+    try {
+      Node ret = added.get(name);
+      if(ret != null)
+        return ret;
+      int index = indexOf(name);
+      return index >= 0 ? nodes.get(index) : null;
+    } finally {
+      unlock();
+    }
+  }
+
+  /**
+   * Finds the name of a materialized child. The reverse index is only built on the first call, which comes from a
+   * watched directory, and is kept up to date afterwards.
+   */
+  @Nullable
+  String nameOf(Node node) {
+    lock();
+    try {
+      if(nodeNames == null) {
+        nodeNames = new IdentityHashMap<>();
+        for(int i = 0; i < names.length; i++) {
+          Node child = nodes.get(i);
+          if(child != null)
+            nodeNames.put(child, decode(names[i]));
+        }
+        for(Map.Entry<String, Node> child : added.entrySet())
+          nodeNames.put(child.getValue(), child.getKey());
+      }
+      return nodeNames.get(node);
+    } finally {
+      unlock();
+    }
+  }
+
+  @Nonnull
+  private Node materialize(int index) throws IOException {
+    Node ret = nodes.get(index);
+    if(ret == null) {
+      String name = decode(names[index]);
+      Node created = dir.materializeChild(name, entryAt(index));
+      if(nodes.compareAndSet(index, null, created)) {
+        ret = created;
+        updateNodeName(null, created, name);
+      } else
+        ret = nodes.get(index);
+    }
+    return ret;
+  }
+
+  private void updateNodeName(@Nullable Node previous, @Nullable Node current, String name) {
+    Map<Node, String> nodeNames = this.nodeNames;
+    if(nodeNames == null)
+      return;
+    if(previous != null)
+      nodeNames.remove(previous);
+    if(current != null)
+      nodeNames.put(current, name);
+  }
+
+  @Nonnull
+  private GitFileEntry entryAt(int index) {
+    return newEntry(ObjectId.fromRaw(ids, index * OBJECT_ID_LENGTH), FileMode.fromBits(modes[index]));
+  }
+
+  private void lock() {
+    if(lock != null)
+      lock.lock();
+  }
+
+  private void unlock() {
+    if(lock != null)
+      lock.unlock();
+  }
+
+  private int indexOf(String name) {
+    byte[] key = encode(name);
+    int low = 0;
+    int high = names.length - 1;
+    while(low <= high) {
+      int mid = (low + high) >>> 1;
+      int cmp = compareEncoded(names[mid], key);
+      if(cmp < 0)
+        low = mid + 1;
+      else if(cmp > 0)
+        high = mid - 1;
+      else
+        return mid;
+    }
+    return -1;
+  }
+
+  private final class NameIterator implements Iterator<String> {
+
+    private int index = 0;
+    private String last;
+    private String next;
+
+    @Override
+    public boolean hasNext() {
+      if(next == null)
+        next = advance();
+      return next != null;
+    }
+
+    @Nonnull
+    @Override
+    public String next() {
+      if(!hasNext())
+        throw new NoSuchElementException();
+      last = next;
+      next = null;
+      return last;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Nullable
+    private String advance() {
+      lock();
+      try {
+        while(index < names.length && removed[index])
+          index++;
+        String nextAdded = last == null ? (added.isEmpty() ? null : added.firstKey()) : added.higherKey(last);
+        if(index == names.length)
+          return nextAdded;
+        String name = decode(names[index]);
+        if(nextAdded != null && compareNames(nextAdded, name) < 0)
+          return nextAdded;
+        index++;
+        return name;
+      } finally {
+        unlock();
+      }
+    }
+  }
+
+  private static boolean isSortedByEncoding(Collection<String> names) {
+    String previous = null;
+    for(String name : names) {
+      if(previous != null && compareNames(previous, name) > 0)
+        return false;
+      previous = name;
+    }
+    return true;
+  }
+
+  private static int compareNames(String s1, String s2) {
+    int i1 = 0;
+    int i2 = 0;
+    while(i1 < s1.length() && i2 < s2.length()) {
+      int c1 = s1.codePointAt(i1);
+      int c2 = s2.codePointAt(i2);
+      if(c1 != c2)
+        return c1 < c2 ? -1 : 1;
+      i1 += Character.charCount(c1);
+      i2 += Character.charCount(c2);
+    }
+    return (s1.length() - i1) - (s2.length() - i2);
+  }
+
+  private static int compareEncoded(byte[] b1, byte[] b2) {
+    int length = Math.min(b1.length, b2.length);
+    for(int i = 0; i < length; i++) {
+      int c1 = b1[i] & 0xff;
+      int c2 = b2[i] & 0xff;
+      if(c1 != c2)
+        return c1 - c2;
+    }
+    return b1.length - b2.length;
+  }
+
+  @Nonnull
+  private static byte[] encode(String name) {
+    return name.getBytes(UTF_8);
+  }
+
+  @Nonnull
+  private static String decode(byte[] name) {
+    return new String(name, UTF_8);
+  }
+
+}
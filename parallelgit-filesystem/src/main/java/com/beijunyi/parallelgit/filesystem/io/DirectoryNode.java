@@ -2,7 +2,7 @@ package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -13,11 +13,13 @@ import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsCounter.NODES_MATERIALIZED;
 import static com.beijunyi.parallelgit.utils.io.GitFileEntry.*;
+import static java.nio.file.StandardWatchEventKinds.*;
 import static java.util.Collections.*;
 import static org.eclipse.jgit.lib.FileMode.TREE;
 
-public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
+public class DirectoryNode extends Node<TreeSnapshot, DirectoryChildren> {
 
   protected DirectoryNode(ObjectId id, GfsObjectService objService) {
     super(id, TREE, objService);
@@ -66,7 +68,8 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
         Collection<Node> notUpdatedNodes = findNotUpdatedChildren(updatedChildren);
         updateOriginsToTrivial(notUpdatedNodes);
       } else {
-        updateOriginsToTrivial(data.values());
+        snapshot = null;
+        updateOriginsToTrivial(data.loaded().values());
       }
     }
   }
@@ -77,23 +80,28 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
 
   @Nonnull
   @Override
-  protected Map<String, Node> loadData(TreeSnapshot snapshot) throws IOException {
-    Map<String, Node> ret = getDefaultData();
-    boolean updateOrigin = origin != null && origin.getId().equals(snapshot.getId());
-    for(Map.Entry<String, GitFileEntry> child : snapshot.getData().entrySet()) {
-      GitFileEntry entry = child.getValue();
-      Node node = Node.fromEntry(entry, this);
-      ret.put(child.getKey(), node);
-      if(updateOrigin)
-        node.updateOrigin(entry);
+  protected DirectoryChildren loadData(TreeSnapshot snapshot) throws IOException {
+    return DirectoryChildren.fromTree(snapshot, this);
+  }
+
+  @Nonnull
+  Node materializeChild(String name, GitFileEntry entry) throws IOException {
+    Node ret = Node.fromEntry(entry, this);
+    TreeSnapshot originTree = snapshot;
+    if(originTree != null) {
+      GitFileEntry origin = originTree.getChild(name);
+      if(!origin.isMissing()) ret.updateOrigin(origin);
     }
+    objService.getMetrics().increment(NODES_MATERIALIZED, 1);
     return ret;
   }
 
   @Override
-  protected boolean isTrivial(Map<String, Node> data) throws IOException {
+  protected boolean isTrivial(DirectoryChildren data) throws IOException {
+    if(data.hasPending())
+      return false;
     boolean ret = true;
-    for(Node child : data.values())
+    for(Node child : data.loaded().values())
       if(!child.isTrivial()) {
         ret = false;
         break;
@@ -102,9 +110,9 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
   }
 
   @Nonnull
-  protected TreeSnapshot captureData(Map<String, Node> data, boolean persist) throws IOException {
-    SortedMap<String, GitFileEntry> entries = new TreeMap<>();
-    for(Map.Entry<String, Node> child : data.entrySet()) {
+  protected TreeSnapshot captureData(DirectoryChildren data, boolean persist) throws IOException {
+    SortedMap<String, GitFileEntry> entries = new TreeMap<>(data.pending());
+    for(Map.Entry<String, Node> child : data.loaded().entrySet()) {
       Node node = child.getValue();
       ObjectId id = node.getObjectId(persist);
       if(!isTrivial(id))
@@ -119,10 +127,10 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
     DirectoryNode ret;
     if(isInitialized()) {
       ret = DirectoryNode.newDirectory(parent);
-      for(Map.Entry<String, Node> child : data.entrySet()) {
-        String name = child.getKey();
-        Node node = child.getValue();
-        ret.addChild(name, node.clone(ret), false);
+      for(String name : data.names()) {
+        Node node = data.get(name);
+        if(node != null)
+          ret.addChild(name, node.clone(ret), false);
       }
     } else if(id != null) {
       ret = DirectoryNode.fromTree(id, parent);
@@ -132,15 +140,40 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
     return ret;
   }
 
+  @Nonnull
+  @Override
+  protected DirectoryNode fork(DirectoryNode parent) {
+    DirectoryNode ret = new DirectoryNode(id, parent);
+    forkInto(ret);
+    return ret;
+  }
+
+  protected void forkInto(DirectoryNode target) {
+    target.origin = origin;
+    target.snapshot = snapshot;
+    target.dirty = dirty;
+    DirectoryChildren data = this.data;
+    if(data != null && (dirty || id == null || data.isLoadedFrom(id)))
+      target.data = data.fork(target);
+  }
+
+  @Nonnull
+  public ObjectId flush(ForkJoinPool pool) throws IOException {
+    return ParallelFlushTask.flush(this, pool);
+  }
+
   @Nonnull
   public List<String> listChildren() throws IOException {
-    List<String> ret = new ArrayList<>(getData().keySet());
-    Collections.sort(ret);
-    return unmodifiableList(ret);
+    return getData().names();
+  }
+
+  @Nonnull
+  public Iterator<String> iterateChildren() throws IOException {
+    return getData().nameIterator();
   }
 
   public boolean hasChild(String name) throws IOException {
-    return getData().containsKey(name);
+    return getData().contains(name);
   }
 
   @Nullable
@@ -149,29 +182,80 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
   }
 
   public boolean addChild(String name, Node child, boolean replace) throws IOException {
-    if(!replace && getData().containsKey(name))
+    checkWritable();
+    RootNode root = findWatchedRoot();
+    boolean exists = (!replace || root != null) && getData().contains(name);
+    if(!replace && exists)
       return false;
     if(snapshot != null) {
       GitFileEntry origin = snapshot.getChild(name);
       if(!origin.isMissing()) child.updateOrigin(origin);
     }
-    getData().put(name, child);
+    Node replaced = getData().put(name, child);
+    if(replaced != null)
+      replaced.exile();
     id = null;
+    dirty = true;
     invalidateParentCache();
+    if(root != null) {
+      if(replaced instanceof DirectoryNode)
+        root.refreshWatchKeys();
+      root.fireEvent(this, name, exists ? ENTRY_MODIFY : ENTRY_CREATE);
+    }
     return true;
   }
 
   public boolean removeChild(String name) throws IOException {
+    checkWritable();
     Node removed = getData().remove(name);
     if(removed != null) {
       removed.exile();
       id = null;
+      dirty = true;
       invalidateParentCache();
+      RootNode root = findWatchedRoot();
+      if(root != null) {
+        if(removed instanceof DirectoryNode)
+          root.refreshWatchKeys();
+        root.fireEvent(this, name, ENTRY_DELETE);
+      }
       return true;
     }
     return false;
   }
 
+  void fireChildModified(Node child) {
+    RootNode root = findWatchedRoot();
+    if(root != null && root.isWatched(this)) {
+      DirectoryChildren data = this.data;
+      String name = data != null ? data.nameOf(child) : null;
+      if(name != null)
+        root.fireEvent(this, name, ENTRY_MODIFY);
+    }
+  }
+
+  @Nullable
+  RootNode findWatchedRoot() {
+    if(!objService.hasWatchers())
+      return null;
+    DirectoryNode node = this;
+    while(node.parent != null)
+      node = node.parent;
+    if(node instanceof RootNode && ((RootNode) node).hasWatchServices())
+      return (RootNode) node;
+    return null;
+  }
+
+  @Override
+  protected void reset(GitFileEntry entry) {
+    DirectoryChildren data = this.data;
+    super.reset(entry);
+    if(data != null) {
+      for(Node child : data.loaded().values())
+        child.exile();
+    }
+  }
+
   @Override
   protected void checkFileMode(FileMode proposed) {
     if(!TREE.equals(proposed))
@@ -180,8 +264,8 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
 
   @Nonnull
   @Override
-  protected Map<String, Node> getDefaultData() {
-    return new ConcurrentHashMap<>();
+  protected DirectoryChildren getDefaultData() {
+    return DirectoryChildren.empty(this);
   }
 
   @Nonnull
@@ -189,7 +273,7 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
     Set<String> ret = new HashSet<>();
     for(Map.Entry<String, GitFileEntry> child : snapshot.getData().entrySet()) {
       String name = child.getKey();
-      Node node = data.get(name);
+      Node node = data.peek(name);
       if(node != null && !node.getOrigin().equals(child.getValue()))
         node.updateOrigin(child.getValue());
       ret.add(name);
@@ -200,7 +284,7 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
   @Nonnull
   private Collection<Node> findNotUpdatedChildren(Set<String> updatedChildren) throws IOException{
     List<Node> ret = new ArrayList<>();
-    for(Map.Entry<String, Node> child : data.entrySet()) {
+    for(Map.Entry<String, Node> child : data.loaded().entrySet()) {
       String name = child.getKey();
       if(!updatedChildren.contains(name))
         ret.add(child.getValue());
@@ -218,7 +302,7 @@ public class DirectoryNode extends Node<TreeSnapshot, Map<String, Node>> {
   protected void exile() {
     super.exile();
     if(isInitialized()) {
-      for(Node child : data.values())
+      for(Node child : data.loaded().values())
         child.exile();
     }
   }
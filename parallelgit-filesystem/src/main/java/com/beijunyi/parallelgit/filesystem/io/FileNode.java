@@ -10,6 +10,7 @@ import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
 import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 
+import static java.util.Arrays.copyOf;
 import static org.eclipse.jgit.lib.FileMode.*;
 
 public class FileNode extends Node<BlobSnapshot, byte[]> {
@@ -75,15 +76,24 @@ public class FileNode extends Node<BlobSnapshot, byte[]> {
     if(data != null) {
       return new ByteArrayInputStream(data);
     }
-    BlobSnapshot snapshot = loadSnapshot(id);
-    return snapshot.getInputStream();
+    return loadSnapshot(id).getInputStream();
   }
 
 
+  @Nonnull
+  byte[] readAllBytes() throws IOException {
+    if(data != null)
+      return data;
+    if(id == null)
+      return EMPTY_BYTE_ARRAY;
+    return loadSnapshot(id).getData();
+  }
+
   @Nonnull
   @Override
   protected byte[] loadData(BlobSnapshot snapshot) throws IOException {
-    return snapshot.getData();
+    byte[] bytes = snapshot.getData();
+    return copyOf(bytes, bytes.length);
   }
 
   @Override
@@ -113,11 +123,38 @@ public class FileNode extends Node<BlobSnapshot, byte[]> {
     return ret;
   }
 
+  @Nonnull
+  @Override
+  protected FileNode fork(DirectoryNode parent) {
+    FileNode ret = new FileNode(id, mode, parent);
+    ret.origin = origin;
+    ret.snapshot = snapshot;
+    ret.size = size;
+    ret.dirty = dirty;
+    byte[] data = this.data;
+    if(data != null && dirty)
+      ret.data = copyOf(data, data.length);
+    return ret;
+  }
+
   public void setBytes(byte[] bytes) {
+    checkWritable();
     this.data = bytes;
     this.size = bytes.length;
     id = null;
+    dirty = true;
+    invalidateParentCache();
+    fireModified();
+  }
+
+  public void setBlob(ObjectId blobId, long size) {
+    checkWritable();
+    this.data = null;
+    this.size = size;
+    id = blobId;
+    dirty = true;
     invalidateParentCache();
+    fireModified();
   }
 
   protected void checkFileMode(FileMode proposed) {
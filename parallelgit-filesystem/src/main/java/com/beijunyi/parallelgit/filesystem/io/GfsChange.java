@@ -5,7 +5,11 @@ import javax.annotation.Nullable;
 
 public abstract class GfsChange {
 
-  public void applyTo(DirectoryNode dir, String name) throws IOException {
+  /**
+   * Applies this change to the child {@code name} of {@code dir}. {@code path} is the absolute path of the child and
+   * is only used to report errors.
+   */
+  public void applyTo(DirectoryNode dir, String name, String path) throws IOException {
     Node currentNode = dir.getChild(name);
     Node newNode = convertNode(currentNode, dir);
     if(newNode == null) {
@@ -1,6 +1,7 @@
 package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
+import java.nio.file.NotDirectoryException;
 import java.util.*;
 import javax.annotation.Nonnull;
 
@@ -12,7 +13,7 @@ import static com.beijunyi.parallelgit.filesystem.utils.GfsPathUtils.*;
 
 public class GfsChangesCollector {
 
-  private static final GfsChange DELETE_NODE = new DeleteNode();
+  public static final GfsChange DELETE_NODE = new DeleteNode();
   private static final GfsChange PREPARE_DIRECTORY = new MakeDirectory();
 
   private final Map<String, GfsChange> changes = new HashMap<>();
@@ -86,17 +87,22 @@ public class GfsChangesCollector {
       String childPath = prefix + childName;
       GfsChange change = changes.get(childPath);
       if(change != null)
-        change.applyTo(dir, childName);
+        change.applyTo(dir, childName, childPath);
       if(changedDirs.containsKey(childPath))
         addSubDirectoryToQueue(childPath, childName, dir);
     }
   }
 
   private void addSubDirectoryToQueue(String childPath, String childName, DirectoryNode dir) throws IOException {
-    DirectoryNode child = (DirectoryNode) dir.getChild(childName);
-    if(child == null) {
+    Node node = dir.getChild(childName);
+    DirectoryNode child;
+    if(node == null) {
       child = DirectoryNode.newDirectory(dir);
       dir.addChild(childName, child, false);
+    } else if(node instanceof DirectoryNode) {
+      child = (DirectoryNode) node;
+    } else {
+      throw new NotDirectoryException(childPath);
     }
     dirs.add(child);
     paths.add(childPath);
@@ -3,19 +3,25 @@ package com.beijunyi.parallelgit.filesystem.io;
 import java.io.IOException;
 import java.util.*;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import com.beijunyi.parallelgit.filesystem.GfsStatusProvider;
 import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.metrics.GfsMetrics;
 import com.beijunyi.parallelgit.utils.io.GitFileEntry;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.dircache.DirCacheIterator;
 import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.treewalk.*;
 
 import static com.beijunyi.parallelgit.filesystem.io.GfsCheckoutConflict.threeWayConflict;
 import static com.beijunyi.parallelgit.filesystem.io.GfsTreeIterator.iterateRoot;
-import static com.beijunyi.parallelgit.filesystem.utils.GfsPathUtils.toAbsolutePath;
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsTimer.*;
+import static com.beijunyi.parallelgit.filesystem.utils.GfsPathUtils.*;
+import static com.beijunyi.parallelgit.utils.io.GitFileEntry.*;
+import static java.util.Collections.emptyMap;
 
 public class GfsDefaultCheckout {
 
@@ -52,14 +58,16 @@ public class GfsDefaultCheckout {
   }
 
   public void checkout(AbstractTreeIterator iterator) throws IOException {
+    long start = System.nanoTime();
     TreeWalk tw = prepareTreeWalk(iterator);
     collectChanges(tw);
-    if(!hasConflicts())
-      applyChanges();
+    completeCheckout(start);
   }
 
   public void checkout(AnyObjectId tree) throws IOException {
-    checkout(new CanonicalTreeParser(null, reader, tree));
+    long start = System.nanoTime();
+    collectChanges("/", status.commit().getTree(), tree, gfs.getFileStore().getRoot());
+    completeCheckout(start);
   }
 
   public void checkout(DirCache cache) throws IOException {
@@ -84,6 +92,16 @@ public class GfsDefaultCheckout {
       changes.applyTo(gfs);
   }
 
+  private void completeCheckout(long start) throws IOException {
+    GfsMetrics metrics = gfs.getMetrics();
+    long collected = System.nanoTime();
+    metrics.record(CHECKOUT_COLLECT, collected - start);
+    if(!hasConflicts()) {
+      applyChanges();
+      metrics.record(CHECKOUT_APPLY, System.nanoTime() - collected);
+    }
+  }
+
   @Nonnull
   private TreeWalk prepareTreeWalk(AbstractTreeIterator iterator) throws IOException {
     TreeWalk ret = new NameConflictTreeWalk(gfs.getRepository());
@@ -105,6 +123,49 @@ public class GfsDefaultCheckout {
     }
   }
 
+  private void collectChanges(String dir, @Nullable AnyObjectId head, AnyObjectId target, DirectoryNode worktree) throws IOException {
+    if(target.equals(head))
+      return;
+    Map<String, GitFileEntry> headEntries = readTree(head);
+    Map<String, GitFileEntry> targetEntries = readTree(target);
+    Set<String> names = new TreeSet<>(headEntries.keySet());
+    names.addAll(targetEntries.keySet());
+    String prefix = addTrailingSlash(dir);
+    for(String name : names) {
+      GitFileEntry headEntry = getEntry(headEntries, name);
+      GitFileEntry targetEntry = getEntry(targetEntries, name);
+      if(headEntry.equals(targetEntry))
+        continue;
+      String path = prefix + name;
+      if(skips(path))
+        continue;
+      Node node = worktree.getChild(name);
+      if(mergeEntries(path, headEntry, targetEntry, getEntry(node)))
+        collectChanges(path, headEntry.isSubtree() ? headEntry.getId() : null, targetEntry.getId(), (DirectoryNode) node);
+    }
+  }
+
+  @Nonnull
+  private Map<String, GitFileEntry> readTree(@Nullable AnyObjectId tree) throws IOException {
+    if(tree == null)
+      return emptyMap();
+    return gfs.getObjectService().readTree(tree.toObjectId()).getData();
+  }
+
+  @Nonnull
+  private static GitFileEntry getEntry(Map<String, GitFileEntry> entries, String name) {
+    GitFileEntry ret = entries.get(name);
+    return ret != null ? ret : missingEntry();
+  }
+
+  @Nonnull
+  private static GitFileEntry getEntry(@Nullable Node node) throws IOException {
+    if(node == null)
+      return missingEntry();
+    ObjectId id = node.getObjectId(false);
+    return Node.isTrivial(id) ? missingEntry() : newEntry(id, node.getMode());
+  }
+
   private boolean mergeEntries(String path, GitFileEntry head, GitFileEntry target, GitFileEntry worktree) throws IOException {
     if(target.equals(worktree) || target.equals(head)) return false;
     if(head.equals(worktree)) {
@@ -5,40 +5,53 @@ import java.nio.file.ClosedDirectoryStreamException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Path;
 import java.util.Iterator;
-import java.util.List;
 import java.util.NoSuchElementException;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.beijunyi.parallelgit.filesystem.GitPath;
 
+/**
+ * Streams the children of a directory in order without copying the child set. A {@link GitPath} is only created for
+ * entries that pass the filter, and a {@link GfsNameFilter} is applied to the raw names before any path is created.
+ */
 public class GfsDirectoryStream implements DirectoryStream<Path> {
 
   private final GitPath parent;
-  private final List<String> children;
+  private final Iterator<String> children;
   private final Filter<? super Path> filter;
   private volatile boolean closed = false;
+  private boolean iterated = false;
 
   public GfsDirectoryStream(DirectoryNode dir, GitPath parent, @Nullable Filter<? super Path> filter) throws IOException {
     this.parent = parent;
     this.filter = filter;
-    children = dir.listChildren();
+    children = dir.iterateChildren();
   }
 
   @Nonnull
   @Override
-  public Iterator<Path> iterator() {
-    final Iterator<String> childrenIt = children.iterator();
+  public synchronized Iterator<Path> iterator() {
+    checkNotClosed();
+    if(iterated)
+      throw new IllegalStateException("Iterator already obtained");
+    iterated = true;
     return new Iterator<Path>() {
 
       private Path next;
 
       private boolean findNext() {
-        while(childrenIt.hasNext()) {
-          String child = childrenIt.next();
-          GitPath childPath = parent.resolve(child);
+        while(children.hasNext()) {
+          String child = children.next();
           try {
-            if(filter == null || filter.accept(childPath)) {
+            if(filter == null) {
+              next = parent.resolve(child);
+              return true;
+            }
+            if(filter instanceof GfsNameFilter && !((GfsNameFilter) filter).acceptName(child))
+              continue;
+            GitPath childPath = parent.resolve(child);
+            if(filter instanceof GfsNameFilter || filter.accept(childPath)) {
               next = childPath;
               return true;
             }
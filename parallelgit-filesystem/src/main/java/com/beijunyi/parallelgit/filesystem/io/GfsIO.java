@@ -10,6 +10,7 @@ import java.util.Set;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.beijunyi.parallelgit.filesystem.GfsPathMatcher;
 import com.beijunyi.parallelgit.filesystem.GitPath;
 import com.beijunyi.parallelgit.filesystem.utils.FileAttributeReader;
 
@@ -29,21 +30,33 @@ public final class GfsIO {
   }
 
   @Nullable
-  private static Node findNode(GitPath path) throws IOException {
+  static Node findNode(GitPath path) throws IOException {
     if(!path.isAbsolute()) throw new IllegalArgumentException(path.toString());
-    Node current = path.getFileStore().getRoot();
-    for(int i = 0; i < path.getNameCount(); i++) {
-      GitPath name = path.getName(i);
-      if(current instanceof DirectoryNode)
-        current = ((DirectoryNode) current).getChild(name.toString());
-      else
-        return null;
+    RootNode root = path.getFileStore().getRoot();
+    if(path.isRoot())
+      return root;
+    NodeLookupCache cache = root.getLookupCache();
+    Node ret = cache.get(path);
+    if(ret == null) {
+      long generation = cache.getGeneration();
+      ret = resolveNode(path, root);
+      if(ret != null)
+        cache.put(path, ret, generation);
     }
-    return current;
+    return ret;
+  }
+
+  @Nullable
+  private static Node resolveNode(GitPath path, RootNode root) throws IOException {
+    GitPath parentPath = getParent(path);
+    Node parent = parentPath.isRoot() ? root : findNode(parentPath);
+    if(parent instanceof DirectoryNode)
+      return ((DirectoryNode) parent).getChild(getFileName(path));
+    return null;
   }
 
   @Nonnull
-  private static Node getNode(GitPath path) throws IOException {
+  static Node getNode(GitPath path) throws IOException {
     Node node = findNode(path);
     if(node == null) throw new NoSuchFileException(path.toString());
     return node;
@@ -96,9 +109,9 @@ public final class GfsIO {
       node = findFile(file);
     }
     if (options.contains(WRITE)) {
-      return new GfsSeekableByteChannel(node, options);
+      return new GfsSeekableByteChannel(node, options, file.getFileSystem().getWriteBufferThreshold());
     } else {
-      return new GfsSeekableReadOnlyByteChannel(node, options);
+      return new GfsSeekableReadOnlyByteChannel(node, options, file.getFileSystem().getReadBufferThreshold());
     }
   }
 
@@ -107,6 +120,12 @@ public final class GfsIO {
     return new GfsDirectoryStream(findDirectory(dir), dir, filter);
   }
 
+  @Nonnull
+  public static GfsDirectoryStream newDirectoryStream(GitPath dir, String glob) throws IOException {
+    GfsNameFilter filter = glob.equals("*") ? null : GfsPathMatcher.newMatcher("glob", glob).toNameFilter();
+    return newDirectoryStream(dir, filter);
+  }
+
   public static void createDirectory(GitPath dir) throws IOException {
     if(dir.isRoot()) throw new FileAlreadyExistsException(dir.toString());
     DirectoryNode parent = findDirectory(getParent(dir));
@@ -145,6 +164,7 @@ public final class GfsIO {
   public static void checkAccess(GitPath path, Set<AccessMode> modes) throws IOException {
     Node node = getNode(path);
     if(modes.contains(EXECUTE) && !node.isExecutableFile()) throw new AccessDeniedException(path.toString());
+    if(modes.contains(AccessMode.WRITE) && path.getFileSystem().isReadOnly()) throw new AccessDeniedException(path.toString());
   }
 
   @Nullable
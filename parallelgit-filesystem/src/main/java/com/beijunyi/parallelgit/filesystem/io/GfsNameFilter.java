@@ -0,0 +1,15 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+
+/**
+ * A directory stream filter that can decide on the raw file name of an entry. {@link GfsDirectoryStream} calls
+ * {@link #acceptName(String)} before a {@link Path} is created, so rejected entries cost no path allocation.
+ */
+public interface GfsNameFilter extends DirectoryStream.Filter<Path> {
+
+  boolean acceptName(String name) throws IOException;
+
+}
@@ -1,76 +1,120 @@
 package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
+import java.nio.file.Files;
 import java.nio.file.OpenOption;
+import java.nio.file.Path;
 import java.util.Collection;
 import javax.annotation.Nonnull;
 
-import static java.lang.System.arraycopy;
+import org.eclipse.jgit.lib.ObjectId;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
 import static java.nio.file.StandardOpenOption.*;
+import static java.util.Arrays.copyOf;
+import static java.util.Arrays.fill;
 
+/**
+ * Keeps the file content in a heap array until it grows beyond the write buffer threshold. Larger content is spilled
+ * to a temporary file and streamed into the object database when the channel is closed.
+ */
 public class GfsSeekableByteChannel implements SeekableByteChannel {
 
+  public static final int DEFAULT_WRITE_BUFFER_THRESHOLD = 16 * 1024 * 1024;
+
+  private static final int MIN_CAPACITY = 32;
+
   private final FileNode file;
   private final boolean readable;
   private final boolean writable;
-  private ByteBuffer buffer;
+  private final int threshold;
+
+  private byte[] bytes;
+  private FileChannel spill;
+  private long size;
+  private long position;
   private volatile boolean closed = false;
 
-  GfsSeekableByteChannel(FileNode file, Collection<? extends OpenOption> options) throws IOException {
+  GfsSeekableByteChannel(FileNode file, Collection<? extends OpenOption> options, int threshold) throws IOException {
     this.file = file;
-    buffer = ByteBuffer.wrap(options.contains(TRUNCATE_EXISTING) ? new byte[0] : file.getData());
+    this.threshold = threshold;
     readable = options.contains(READ);
     writable = options.contains(WRITE);
-    if(options.contains(APPEND)) buffer.position(buffer.limit());
+    if(options.contains(TRUNCATE_EXISTING)) {
+      bytes = new byte[0];
+    } else if(!file.isInitialized() && file.getSize() > threshold) {
+      spill(file.getInputStream(), file.getSize());
+    } else {
+      bytes = file.getData();
+      size = bytes.length;
+    }
+    if(options.contains(APPEND)) position = size;
+  }
+
+  GfsSeekableByteChannel(FileNode file, Collection<? extends OpenOption> options) throws IOException {
+    this(file, options, DEFAULT_WRITE_BUFFER_THRESHOLD);
   }
 
   @Override
-  public int read(ByteBuffer dst) throws ClosedChannelException {
+  public int read(ByteBuffer dst) throws IOException {
     checkClosed();
     checkReadAccess();
     synchronized(this) {
-      if (!buffer.hasRemaining()) {
+      if(position >= size)
         return -1;
+      int ret;
+      if(spill != null) {
+        ret = max(0, spill.read(dst, position));
+      } else {
+        ret = (int) min(dst.remaining(), size - position);
+        dst.put(bytes, (int) position, ret);
       }
-      return copyBytes(dst, buffer);
+      position += ret;
+      return ret;
     }
   }
 
   @Override
-  public int write(ByteBuffer src) throws ClosedChannelException {
+  public int write(ByteBuffer src) throws IOException {
     checkClosed();
     checkWriteAccess();
     synchronized(this) {
-      if(buffer.remaining() < src.remaining()) {
-        int position = buffer.position();
-        byte[] bytes = new byte[position + src.remaining()];
-        arraycopy(buffer.array(), buffer.arrayOffset(), bytes, 0, position);
-        buffer = ByteBuffer.wrap(bytes);
-        buffer.position(position);
+      int length = src.remaining();
+      long end = position + length;
+      if(spill == null && end > threshold)
+        spill();
+      if(spill != null) {
+        while(src.hasRemaining())
+          spill.write(src, position + length - src.remaining());
+      } else {
+        ensureCapacity((int) end);
+        if(position > size)
+          fill(bytes, (int) size, (int) position, (byte) 0);
+        src.get(bytes, (int) position, length);
       }
-      return copyBytes(buffer, src);
+      position = end;
+      size = max(size, end);
+      return length;
     }
   }
 
   @Override
   public long position() throws ClosedChannelException {
     checkClosed();
-    return buffer.position();
-  }
-
-  private static int toInt(long num) {
-    if(num < 0 || num >= Integer.MAX_VALUE)
-      throw new IllegalArgumentException("Input must be between 0 and " + Integer.MAX_VALUE);
-    return (int) num;
+    return position;
   }
 
   @Override
   public GfsSeekableByteChannel position(long newPosition) throws ClosedChannelException {
     checkClosed();
+    if(newPosition < 0)
+      throw new IllegalArgumentException("Position must not be negative: " + newPosition);
     synchronized(this) {
-      buffer.position(toInt(newPosition));
+      position = newPosition;
     }
     return this;
   }
@@ -78,15 +122,22 @@ public class GfsSeekableByteChannel implements SeekableByteChannel {
   @Override
   public long size() throws ClosedChannelException {
     checkClosed();
-    return buffer.limit();
+    return size;
   }
 
   @Override
-  public GfsSeekableByteChannel truncate(long size) throws NonWritableChannelException, ClosedChannelException, IllegalArgumentException {
+  public GfsSeekableByteChannel truncate(long newSize) throws IOException {
     checkClosed();
     checkWriteAccess();
+    if(newSize < 0)
+      throw new IllegalArgumentException("Size must not be negative: " + newSize);
     synchronized(this) {
-      buffer.limit(toInt(size));
+      if(newSize < size) {
+        if(spill != null)
+          spill.truncate(newSize);
+        size = newSize;
+      }
+      position = min(position, newSize);
     }
     return this;
   }
@@ -96,24 +147,84 @@ public class GfsSeekableByteChannel implements SeekableByteChannel {
     return !closed;
   }
 
+  public boolean isSpilled() {
+    return spill != null;
+  }
+
   @Nonnull
-  public byte[] getBytes() {
+  public byte[] getBytes() throws IOException {
     synchronized(this) {
-      byte[] bytes = new byte[buffer.limit()];
-      arraycopy(buffer.array(), 0, bytes, 0, bytes.length);
-      return bytes;
+      if(spill == null)
+        return copyOf(bytes, (int) size);
+      ByteBuffer ret = ByteBuffer.allocate((int) size);
+      while(ret.hasRemaining())
+        spill.read(ret, ret.position());
+      return ret.array();
     }
-
   }
 
   @Override
-  public void close() {
+  public void close() throws IOException {
     if(closed)
       return;
     synchronized(this) {
       if(!closed) {
         closed = true;
-        file.setBytes(getBytes());
+        if(spill != null)
+          closeSpill();
+        else if(writable)
+          file.setBytes(size == bytes.length ? bytes : copyOf(bytes, (int) size));
+      }
+    }
+  }
+
+  private void ensureCapacity(int capacity) {
+    if(capacity > bytes.length) {
+      int newCapacity = max(capacity, max(MIN_CAPACITY, bytes.length * 2));
+      bytes = copyOf(bytes, min(newCapacity, threshold));
+    }
+  }
+
+  private void spill() throws IOException {
+    spill = openTempChannel();
+    ByteBuffer src = ByteBuffer.wrap(bytes, 0, (int) size);
+    while(src.hasRemaining())
+      spill.write(src);
+    bytes = null;
+  }
+
+  private void spill(InputStream in, long length) throws IOException {
+    spill = openTempChannel();
+    transfer(in, length, spill);
+    size = spill.size();
+  }
+
+  private void closeSpill() throws IOException {
+    try {
+      if(writable) {
+        spill.position(0);
+        ObjectId blobId = file.getObjectService().insertBlob(size, Channels.newInputStream(spill));
+        file.setBlob(blobId, size);
+      }
+    } finally {
+      spill.close();
+    }
+  }
+
+  @Nonnull
+  static FileChannel openTempChannel() throws IOException {
+    Path tmp = Files.createTempFile("gfs-", ".tmp");
+    return FileChannel.open(tmp, READ, WRITE, DELETE_ON_CLOSE);
+  }
+
+  static void transfer(InputStream in, long length, FileChannel target) throws IOException {
+    try(ReadableByteChannel src = Channels.newChannel(in)) {
+      long transferred = 0;
+      while(transferred < length) {
+        long count = target.transferFrom(src, transferred, length - transferred);
+        if(count <= 0)
+          break;
+        transferred += count;
       }
     }
   }
@@ -130,13 +241,4 @@ public class GfsSeekableByteChannel implements SeekableByteChannel {
     if(!writable) throw new NonWritableChannelException();
   }
 
-  private static int copyBytes(ByteBuffer dst, ByteBuffer src) {
-    int remaining = Math.min(src.remaining(), dst.remaining());
-    ByteBuffer toCopy = src.slice();
-    toCopy.limit(remaining);
-    dst.put(toCopy);
-    src.position(src.position() + remaining);
-    return remaining;
-  }
-
 }
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.OpenOption;
@@ -13,19 +14,30 @@ import static java.nio.file.StandardOpenOption.*;
 
 /**
  * For read-only access to a git object, we don't need (or want) to read the entire thing into
- * memory.
+ * memory. The object is streamed until the first backward seek, after which the channel switches
+ * to random access over the inflated content: small blobs are kept in a heap buffer, larger ones
+ * are inflated once into a temporary file.
  */
 public class GfsSeekableReadOnlyByteChannel implements SeekableByteChannel {
 
+    public static final int DEFAULT_READ_BUFFER_THRESHOLD = 16 * 1024 * 1024;
+
+    private static final int SKIP_BUFFER_SIZE = 65536;
+
     private final FileNode file;
+    private final int threshold;
     private InputStream stream = null;
+    private ByteBuffer buffer = null;
+    private byte[] chunk = null;
+    private FileChannel inflated = null;
     private long position = 0;
     boolean isOpen = true;
     // see skip() for details
     private long manualSkip;
 
-    GfsSeekableReadOnlyByteChannel(FileNode file, Collection<? extends OpenOption> options) throws IOException {
+    GfsSeekableReadOnlyByteChannel(FileNode file, Collection<? extends OpenOption> options, int threshold) throws IOException {
         this.file = file;
+        this.threshold = threshold;
         if(options.contains(APPEND)) {
             position = file.getSize();
         } else {
@@ -33,21 +45,42 @@ public class GfsSeekableReadOnlyByteChannel implements SeekableByteChannel {
         }
     }
 
+    GfsSeekableReadOnlyByteChannel(FileNode file, Collection<? extends OpenOption> options) throws IOException {
+        this(file, options, DEFAULT_READ_BUFFER_THRESHOLD);
+    }
+
     @Override
     public int read(ByteBuffer dst) throws IOException {
         if (!isOpen)
             throw new ClosedChannelException();
+        if (buffer != null)
+            return readBuffer(dst);
+        if (inflated != null)
+            return readInflated(dst);
         if (stream == null)
             return -1;
         if (manualSkip > 0) {
             //see skip() for details
-            byte[] junk = new byte[(int)Math.min(65536, manualSkip)];
+            byte[] junk = new byte[(int)Math.min(SKIP_BUFFER_SIZE, manualSkip)];
             while (manualSkip > 0) {
                 manualSkip -= stream.read(junk, 0, (int)Math.min(junk.length, manualSkip));
             }
         }
-        int result = stream.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
-        position += result;
+        int result;
+        if (dst.hasArray()) {
+            result = stream.read(dst.array(), dst.arrayOffset() + dst.position(), dst.remaining());
+            if (result > 0)
+                dst.position(dst.position() + result);
+        } else {
+            // direct buffers have no backing array to read into, so the same chunk is reused for every read
+            if (chunk == null)
+                chunk = new byte[SKIP_BUFFER_SIZE];
+            result = stream.read(chunk, 0, Math.min(chunk.length, dst.remaining()));
+            if (result > 0)
+                dst.put(chunk, 0, result);
+        }
+        if (result > 0)
+            position += result;
         return result;
     }
 
@@ -63,12 +96,13 @@ public class GfsSeekableReadOnlyByteChannel implements SeekableByteChannel {
 
     @Override
     public SeekableByteChannel position(long newPosition) throws IOException {
-        if (newPosition < position) {
-            if (stream != null)
-                stream.close();
-            stream = file.getInputStream();
-            position = 0;
-            manualSkip = 0;
+        if (newPosition < 0)
+            throw new IllegalArgumentException("Position must not be negative: " + newPosition);
+        if (newPosition < position && !isRandomAccess())
+            enterRandomAccess();
+        if (isRandomAccess()) {
+            position = newPosition;
+            return this;
         }
         if (newPosition >= size()) {
             position = newPosition;
@@ -105,10 +139,51 @@ public class GfsSeekableReadOnlyByteChannel implements SeekableByteChannel {
         return isOpen;
     }
 
+    public boolean isRandomAccess() {
+        return buffer != null || inflated != null;
+    }
+
     @Override
     public void close() throws IOException {
         if (stream != null)
             stream.close();
+        if (inflated != null)
+            inflated.close();
         isOpen = false;
     }
+
+    private void enterRandomAccess() throws IOException {
+        if (stream != null)
+            stream.close();
+        stream = null;
+        manualSkip = 0;
+        long size = size();
+        if (file.isInitialized() || size <= threshold) {
+            buffer = ByteBuffer.wrap(file.readAllBytes()).asReadOnlyBuffer();
+        } else {
+            inflated = GfsSeekableByteChannel.openTempChannel();
+            GfsSeekableByteChannel.transfer(file.getInputStream(), size, inflated);
+        }
+    }
+
+    private int readBuffer(ByteBuffer dst) {
+        if (position >= buffer.limit())
+            return -1;
+        ByteBuffer src = buffer.duplicate();
+        src.position((int) position);
+        int count = Math.min(src.remaining(), dst.remaining());
+        src.limit(src.position() + count);
+        dst.put(src);
+        position += count;
+        return count;
+    }
+
+    private int readInflated(ByteBuffer dst) throws IOException {
+        if (position >= inflated.size())
+            return -1;
+        int result = inflated.read(dst, position);
+        if (result > 0)
+            position += result;
+        return result;
+    }
 }
@@ -1,44 +1,47 @@
 package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
-import java.util.*;
+import java.util.Map;
+import java.util.SortedMap;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.beijunyi.parallelgit.filesystem.GfsFileStore;
+import com.beijunyi.parallelgit.filesystem.GfsObjectService;
 import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.utils.io.GitFileEntry;
+import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
 import org.eclipse.jgit.dircache.DirCacheEntry;
-import org.eclipse.jgit.lib.FileMode;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.WorkingTreeIterator;
 import org.eclipse.jgit.treewalk.WorkingTreeOptions;
+import org.eclipse.jgit.util.Paths;
 
 import static java.lang.System.arraycopy;
-import static java.util.Collections.*;
 import static org.eclipse.jgit.lib.Constants.*;
+import static org.eclipse.jgit.lib.FileMode.TREE;
 
 public class GfsTreeIterator extends WorkingTreeIterator {
 
-  private final List<GfsTreeEntry> files;
+  private final GfsTreeEntries files;
   private int index = -1;
-  private ObjectId id;
 
-  private GfsTreeIterator(List<GfsTreeEntry> files, GfsTreeIterator parent) {
+  private GfsTreeIterator(GfsTreeEntries files, GfsTreeIterator parent) {
     super(parent);
     this.files = files;
     next(1);
   }
 
-  private GfsTreeIterator(List<GfsTreeEntry> files) {
+  private GfsTreeIterator(GfsTreeEntries files) {
     super((WorkingTreeOptions) null);
     this.files = files;
     next(1);
   }
 
   private GfsTreeIterator(DirectoryNode node) throws IOException {
-    this(GfsTreeEntry.listChildren(node));
+    this(GfsTreeEntries.listChildren(node));
   }
 
   private GfsTreeIterator(GfsFileStore store) throws IOException {
@@ -56,32 +59,28 @@ public class GfsTreeIterator extends WorkingTreeIterator {
 
   @Override
   public boolean isModified(@Nullable DirCacheEntry entry, boolean forceContentCheck, ObjectReader reader) throws IOException {
-    GfsTreeEntry current = currentEntry();
-    return entry == null || !current.getId().equals(entry.getObjectId()) || !current.getMode().equals(entry.getFileMode());
+    return entry == null || entry.getObjectId().compareTo(files.ids, idOffset()) != 0 || entry.getRawMode() != mode;
   }
 
   @Override
   public boolean hasId() {
-    return index >= 0 && index < files.size();
+    return index >= 0 && index < files.size;
   }
 
   @Override
   public byte[] idBuffer() {
-    byte[] ret = new byte[OBJECT_ID_LENGTH];
-    id.copyRawTo(ret, 0);
-    return ret;
+    return files.ids;
   }
 
   @Override
   public int idOffset() {
-    return 0;
+    return index * OBJECT_ID_LENGTH;
   }
 
   @Nonnull
   @Override
   public AbstractTreeIterator createSubtreeIterator(ObjectReader reader) throws IOException {
-    GfsTreeEntry entry = currentEntry();
-    return new GfsTreeIterator(entry.listChildren(), this);
+    return new GfsTreeIterator(files.listChildren(index), this);
   }
 
   @Override
@@ -91,12 +90,12 @@ public class GfsTreeIterator extends WorkingTreeIterator {
 
   @Override
   public boolean eof() {
-    return index == files.size();
+    return index == files.size;
   }
 
   @Override
   public void next(int delta) {
-    index = Math.min(files.size(), index + delta);
+    index = Math.min(files.size, index + delta);
     if(!eof()) readEntry();
   }
 
@@ -106,82 +105,135 @@ public class GfsTreeIterator extends WorkingTreeIterator {
     readEntry();
   }
 
-  @Nonnull
-  private GfsTreeEntry currentEntry() {
-    return files.get(index);
-  }
-
   private void readEntry() {
-    GfsTreeEntry entry = currentEntry();
-
-    mode = entry.getMode().getBits();
-    id = entry.getId();
-
-    byte[] name = encode(entry.getName());
+    mode = files.modes[index];
+    byte[] name = files.names[index];
     ensurePathCapacity(pathOffset + name.length, pathOffset);
     arraycopy(name, 0, path, pathOffset, name.length);
     pathLen = pathOffset + name.length;
   }
 
-  private static class GfsTreeEntry {
-    private final String name;
-    private final Node node;
-
-    private GfsTreeEntry(String name, Node node) {
-      this.name = name;
-      this.node = node;
+  /**
+   * The entries of one directory in git tree order. Names are encoded and ids are resolved once when the directory is
+   * entered, so moving the iterator and reading the current id do not allocate.
+   */
+  private static class GfsTreeEntries {
+
+    private final byte[][] names;
+    private final byte[] ids;
+    private final int[] modes;
+    private final Node[] nodes;
+    private final GfsObjectService objService;
+    private int size;
+
+    private GfsTreeEntries(int capacity, GfsObjectService objService) {
+      this.names = new byte[capacity][];
+      this.ids = new byte[capacity * OBJECT_ID_LENGTH];
+      this.modes = new int[capacity];
+      this.nodes = new Node[capacity];
+      this.objService = objService;
     }
 
     @Nonnull
-    public static GfsTreeEntry forNode(String name, Node node) {
-      return new GfsTreeEntry(name, node);
-    }
-
-    @Nonnull
-    public String getName() {
-      return name;
+    static GfsTreeEntries listChildren(DirectoryNode dir) throws IOException {
+      GfsObjectService objService = dir.getObjectService();
+      if(!dir.isDirty())
+        return listChildren(objService.readTree(dir.getObjectId(false)), objService);
+      DirectoryChildren children = dir.getData();
+      SortedMap<String, GitFileEntry> pending = children.pending();
+      SortedMap<String, Node> loaded = children.loaded();
+      GfsTreeEntries ret = new GfsTreeEntries(pending.size() + loaded.size(), objService);
+      for(Map.Entry<String, GitFileEntry> child : pending.entrySet()) {
+        GitFileEntry entry = child.getValue();
+        ret.add(child.getKey(), entry.getId(), entry.getMode().getBits(), null);
+      }
+      for(Map.Entry<String, Node> child : loaded.entrySet()) {
+        Node node = child.getValue();
+        ObjectId id = node.getObjectId(false);
+        if(!Node.isTrivial(id))
+          ret.add(child.getKey(), id, node.getMode().getBits(), node);
+      }
+      return ret.sort();
     }
 
     @Nonnull
-    public ObjectId getId() {
-      try {
-        return node.getObjectId(false);
-      } catch(IOException e) {
-        throw new IllegalStateException(e);
+    private static GfsTreeEntries listChildren(TreeSnapshot tree, GfsObjectService objService) throws IOException {
+      SortedMap<String, GitFileEntry> children = tree.getData();
+      GfsTreeEntries ret = new GfsTreeEntries(children.size(), objService);
+      for(Map.Entry<String, GitFileEntry> child : children.entrySet()) {
+        GitFileEntry entry = child.getValue();
+        ret.add(child.getKey(), entry.getId(), entry.getMode().getBits(), null);
       }
+      return ret.sort();
     }
 
     @Nonnull
-    public FileMode getMode() {
-      return node.getMode();
+    GfsTreeEntries listChildren(int index) throws IOException {
+      if(!TREE.equals(modes[index]))
+        throw new IllegalStateException();
+      Node node = nodes[index];
+      if(node != null)
+        return listChildren((DirectoryNode) node);
+      return listChildren(objService.readTree(ObjectId.fromRaw(ids, index * OBJECT_ID_LENGTH)), objService);
     }
 
-    @Nonnull
-    public List<GfsTreeEntry> listChildren() throws IOException {
-      if(!node.isDirectory())
-        throw new IllegalStateException();
-      return listChildren((DirectoryNode) node);
+    private void add(String name, ObjectId id, int mode, @Nullable Node node) {
+      names[size] = encode(name);
+      id.copyRawTo(ids, size * OBJECT_ID_LENGTH);
+      modes[size] = mode;
+      nodes[size] = node;
+      size++;
     }
 
     @Nonnull
-    public static List<GfsTreeEntry> listChildren(DirectoryNode dir) throws IOException {
-      List<GfsTreeEntry> ret = new ArrayList<>();
-      for(Map.Entry<String, Node> child : dir.getData().entrySet()) {
-        Node node = child.getValue();
-        if(!node.isTrivial()) ret.add(forNode(child.getKey(), node));
+    private GfsTreeEntries sort() {
+      if(isSorted())
+        return this;
+      int[] order = new int[size];
+      for(int i = 0; i < size; i++)
+        order[i] = i;
+      mergeSort(order, new int[size], 0, size);
+      GfsTreeEntries ret = new GfsTreeEntries(size, objService);
+      for(int i : order) {
+        ret.names[ret.size] = names[i];
+        arraycopy(ids, i * OBJECT_ID_LENGTH, ret.ids, ret.size * OBJECT_ID_LENGTH, OBJECT_ID_LENGTH);
+        ret.modes[ret.size] = modes[i];
+        ret.nodes[ret.size] = nodes[i];
+        ret.size++;
       }
-      sort(ret, TreeEntryComparator.ASCENDING);
-      return unmodifiableList(ret);
+      return ret;
     }
-  }
 
-  private static class TreeEntryComparator implements Comparator<GfsTreeEntry> {
+    private boolean isSorted() {
+      for(int i = 1; i < size; i++)
+        if(compare(i - 1, i) > 0)
+          return false;
+      return true;
+    }
 
-    private static TreeEntryComparator ASCENDING = new TreeEntryComparator();
+    private void mergeSort(int[] order, int[] buffer, int from, int to) {
+      if(to - from < 2)
+        return;
+      int middle = (from + to) >>> 1;
+      mergeSort(order, buffer, from, middle);
+      mergeSort(order, buffer, middle, to);
+      if(compare(order[middle - 1], order[middle]) <= 0)
+        return;
+      arraycopy(order, from, buffer, from, to - from);
+      int left = from;
+      int right = middle;
+      for(int i = from; i < to; i++) {
+        if(right >= to || left < middle && compare(buffer[left], buffer[right]) <= 0)
+          order[i] = buffer[left++];
+        else
+          order[i] = buffer[right++];
+      }
+    }
 
-    @Override
-    public int compare(GfsTreeEntry o1, GfsTreeEntry o2) {
-      return o1.getName().compareTo(o2.getName());
+    private int compare(int i1, int i2) {
+      byte[] n1 = names[i1];
+      byte[] n2 = names[i2];
+      return Paths.compare(n1, 0, n1.length, modes[i1], n2, 0, n2.length, modes[i2]);
     }
 
   }
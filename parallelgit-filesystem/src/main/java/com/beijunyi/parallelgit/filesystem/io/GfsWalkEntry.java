@@ -0,0 +1,119 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+
+import static org.eclipse.jgit.lib.FileMode.GITLINK;
+import static org.eclipse.jgit.lib.FileMode.TREE;
+import static org.eclipse.jgit.util.RawParseUtils.decode;
+
+/**
+ * An entry reported by {@link GfsWalker}. An entry is backed either by a loaded {@link Node} or by a raw tree entry
+ * of a directory that has not been loaded. The path is kept as UTF-8 bytes, with a trailing slash for directories so
+ * that the paths of their children can be appended to it. The path string, the {@link GitPath} and the blob size are
+ * only computed on request.
+ */
+public class GfsWalkEntry {
+
+  private final GitFileSystem gfs;
+  private final byte[] path;
+  private final int length;
+  private final int depth;
+  private final FileMode mode;
+  private final ObjectId id;
+  private final Node node;
+
+  GfsWalkEntry(GitFileSystem gfs, byte[] path, int depth, FileMode mode, @Nullable ObjectId id, @Nullable Node node) {
+    this.gfs = gfs;
+    this.path = path;
+    this.length = TREE.equals(mode) && path.length > 1 ? path.length - 1 : path.length;
+    this.depth = depth;
+    this.mode = mode;
+    this.id = id;
+    this.node = node;
+  }
+
+  @Nonnull
+  static GfsWalkEntry fromNode(GitFileSystem gfs, byte[] path, int depth, Node node) {
+    return new GfsWalkEntry(gfs, path, depth, node.getMode(), null, node);
+  }
+
+  @Nonnull
+  public String getPathString() {
+    return decode(path, 0, length);
+  }
+
+  @Nonnull
+  public GitPath getPath() {
+    return gfs.getPath(getPathString());
+  }
+
+  @Nonnull
+  public String getName() {
+    int start = length;
+    while(start > 0 && path[start - 1] != '/')
+      start--;
+    return decode(path, start, length);
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  @Nonnull
+  public FileMode getMode() {
+    return mode;
+  }
+
+  public boolean isDirectory() {
+    return TREE.equals(mode);
+  }
+
+  @Nonnull
+  public ObjectId getObjectId() throws IOException {
+    return id != null ? id : node.getObjectId(false);
+  }
+
+  public long getSize() throws IOException {
+    if(node != null)
+      return node.getSize();
+    if(isDirectory() || GITLINK.equals(mode))
+      return 0;
+    return gfs.getObjectService().getBlobSize(id);
+  }
+
+  /**
+   * Returns the UTF-8 bytes of the path. The first {@link #getPathLength()} bytes are the path itself; a directory
+   * other than the root is followed by a slash.
+   */
+  @Nonnull
+  byte[] getPathBytes() {
+    return path;
+  }
+
+  int getPathLength() {
+    return length;
+  }
+
+  @Nonnull
+  GitFileSystem getFileSystem() {
+    return gfs;
+  }
+
+  @Nullable
+  Node getNode() {
+    return node;
+  }
+
+  @Override
+  public String toString() {
+    return getPathString();
+  }
+
+}
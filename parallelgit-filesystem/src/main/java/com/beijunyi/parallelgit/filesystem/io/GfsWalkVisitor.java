@@ -0,0 +1,13 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+
+public interface GfsWalkVisitor {
+
+  /**
+   * Visits an entry of the walk. Returning {@code false} for a directory skips its children. When the walk runs in a
+   * {@link java.util.concurrent.ForkJoinPool}, this method is called concurrently.
+   */
+  boolean visit(GfsWalkEntry entry) throws IOException;
+
+}
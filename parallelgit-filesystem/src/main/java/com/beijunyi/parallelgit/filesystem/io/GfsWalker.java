@@ -0,0 +1,226 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.filesystem.GfsPathMatcher;
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+import com.beijunyi.parallelgit.utils.io.GitFileEntry;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+
+import static java.util.Collections.synchronizedList;
+import static org.eclipse.jgit.lib.Constants.encode;
+import static org.eclipse.jgit.lib.FileMode.TREE;
+
+/**
+ * Walks a file tree of a {@link GitFileSystem} without going through the generic NIO machinery. Loaded directories
+ * are walked through their nodes, and directories that have not been loaded are read straight from their tree
+ * objects without creating any node. Globs are matched against the UTF-8 bytes of the absolute path of each entry, so
+ * no path string is built unless the visitor asks for one.
+ */
+public class GfsWalker {
+
+  private final GitPath start;
+  private final List<GfsPathMatcher> prunes = new ArrayList<>();
+  private GfsPathMatcher filter;
+  private int maxDepth = Integer.MAX_VALUE;
+  private ForkJoinPool pool;
+
+  public GfsWalker(GitPath start) {
+    this.start = start;
+  }
+
+  /**
+   * Skips the entries that match the given glob. Matching directories are not entered.
+   */
+  @Nonnull
+  public GfsWalker prune(String glob) {
+    prunes.add(GfsPathMatcher.newMatcher("glob", glob));
+    return this;
+  }
+
+  /**
+   * Only reports the entries that match the given glob. Directories that do not match are still entered unless none
+   * of their descendants can match.
+   */
+  @Nonnull
+  public GfsWalker filter(@Nullable String glob) {
+    filter = glob != null ? GfsPathMatcher.newMatcher("glob", glob) : null;
+    return this;
+  }
+
+  @Nonnull
+  public GfsWalker maxDepth(int maxDepth) {
+    if(maxDepth < 0) throw new IllegalArgumentException("maxDepth: " + maxDepth);
+    this.maxDepth = maxDepth;
+    return this;
+  }
+
+  /**
+   * Walks sibling subtrees in parallel in the given pool. The visitor is then called concurrently and entries are no
+   * longer reported in tree order.
+   */
+  @Nonnull
+  public GfsWalker parallel(@Nullable ForkJoinPool pool) {
+    this.pool = pool;
+    return this;
+  }
+
+  public void walk(GfsWalkVisitor visitor) throws IOException {
+    GitPath path = start.toRealPath();
+    Node node = GfsIO.getNode(path);
+    GfsWalkEntry root = GfsWalkEntry.fromNode(path.getFileSystem(), entryPath(encode(path.toString()), node.getMode()), 0, node);
+    if(!accept(root, visitor) || !shouldEnter(root))
+      return;
+    WalkTask task = new WalkTask(root, visitor);
+    if(pool == null) {
+      task.walk();
+      return;
+    }
+    try {
+      pool.invoke(task);
+    } catch(WalkException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Nonnull
+  public List<GfsWalkEntry> collect() throws IOException {
+    final List<GfsWalkEntry> ret = synchronizedList(new ArrayList<GfsWalkEntry>());
+    walk(new GfsWalkVisitor() {
+      @Override
+      public boolean visit(GfsWalkEntry entry) {
+        ret.add(entry);
+        return true;
+      }
+    });
+    return ret;
+  }
+
+  private boolean accept(GfsWalkEntry entry, GfsWalkVisitor visitor) throws IOException {
+    return filter != null && !filter.matches(entry.getPathBytes(), 0, entry.getPathLength()) || visitor.visit(entry);
+  }
+
+  private boolean shouldEnter(GfsWalkEntry dir) {
+    return dir.isDirectory() && dir.getDepth() < maxDepth
+             && (filter == null || filter.matchesDescendantOf(dir.getPathBytes(), 0, dir.getPathBytes().length));
+  }
+
+  private boolean isPruned(GfsWalkEntry entry) {
+    for(GfsPathMatcher prune : prunes)
+      if(prune.matches(entry.getPathBytes(), 0, entry.getPathLength()))
+        return true;
+    return false;
+  }
+
+  @Nonnull
+  private static List<GfsWalkEntry> listChildren(GfsWalkEntry dir) throws IOException {
+    GitFileSystem gfs = dir.getFileSystem();
+    byte[] prefix = dir.getPathBytes();
+    int depth = dir.getDepth() + 1;
+    List<GfsWalkEntry> ret = new ArrayList<>();
+    DirectoryNode node = (DirectoryNode) dir.getNode();
+    if(node == null || !node.isDirty()) {
+      ObjectId id = dir.getObjectId();
+      if(Node.isTrivial(id))
+        return ret;
+      SortedMap<String, GitFileEntry> entries = gfs.getObjectService().readTree(id).getData();
+      for(Map.Entry<String, GitFileEntry> child : entries.entrySet())
+        ret.add(fromEntry(gfs, prefix, child.getKey(), depth, child.getValue()));
+      return ret;
+    }
+    DirectoryChildren children = node.getData();
+    SortedMap<String, GfsWalkEntry> sorted = new TreeMap<>();
+    for(Map.Entry<String, GitFileEntry> child : children.pending().entrySet())
+      sorted.put(child.getKey(), fromEntry(gfs, prefix, child.getKey(), depth, child.getValue()));
+    for(Map.Entry<String, Node> child : children.loaded().entrySet()) {
+      Node childNode = child.getValue();
+      sorted.put(child.getKey(), GfsWalkEntry.fromNode(gfs, childPath(prefix, child.getKey(), childNode.getMode()), depth, childNode));
+    }
+    ret.addAll(sorted.values());
+    return ret;
+  }
+
+  @Nonnull
+  private static GfsWalkEntry fromEntry(GitFileSystem gfs, byte[] prefix, String name, int depth, GitFileEntry entry) {
+    return new GfsWalkEntry(gfs, childPath(prefix, name, entry.getMode()), depth, entry.getMode(), entry.getId(), null);
+  }
+
+  @Nonnull
+  private static byte[] childPath(byte[] prefix, String name, FileMode mode) {
+    byte[] encoded = encode(name);
+    byte[] ret = new byte[prefix.length + encoded.length + (TREE.equals(mode) ? 1 : 0)];
+    System.arraycopy(prefix, 0, ret, 0, prefix.length);
+    System.arraycopy(encoded, 0, ret, prefix.length, encoded.length);
+    if(TREE.equals(mode))
+      ret[ret.length - 1] = '/';
+    return ret;
+  }
+
+  @Nonnull
+  private static byte[] entryPath(byte[] path, FileMode mode) {
+    if(!TREE.equals(mode) || path[path.length - 1] == '/')
+      return path;
+    byte[] ret = Arrays.copyOf(path, path.length + 1);
+    ret[path.length] = '/';
+    return ret;
+  }
+
+  private class WalkTask extends RecursiveAction {
+
+    private final GfsWalkEntry dir;
+    private final GfsWalkVisitor visitor;
+
+    private WalkTask(GfsWalkEntry dir, GfsWalkVisitor visitor) {
+      this.dir = dir;
+      this.visitor = visitor;
+    }
+
+    @Override
+    protected void compute() {
+      try {
+        walk();
+      } catch(IOException e) {
+        throw new WalkException(e);
+      }
+    }
+
+    private void walk() throws IOException {
+      List<WalkTask> subtrees = new ArrayList<>();
+      for(GfsWalkEntry child : listChildren(dir)) {
+        if(isPruned(child))
+          continue;
+        if(accept(child, visitor) && shouldEnter(child)) {
+          WalkTask subtree = new WalkTask(child, visitor);
+          if(pool != null)
+            subtrees.add(subtree);
+          else
+            subtree.walk();
+        }
+      }
+      if(!subtrees.isEmpty())
+        invokeAll(subtrees);
+    }
+
+  }
+
+  private static class WalkException extends RuntimeException {
+
+    private WalkException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+
+  }
+
+}
@@ -0,0 +1,161 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.filesystem.GitPath;
+
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A directory registered with a {@link GfsWatchService}. At most {@link #MAX_EVENTS} events are pending: repeated
+ * events for the same entry are counted instead of queued, and the last slot is taken by an
+ * {@link java.nio.file.StandardWatchEventKinds#OVERFLOW} event that counts every event arriving while the list is full.
+ */
+class GfsWatchKey implements WatchKey {
+
+  static final int MAX_EVENTS = 512;
+
+  private final GfsWatchService watcher;
+  private final GitPath dir;
+  private final List<Event<?>> events = new ArrayList<>();
+  private volatile Set<WatchEvent.Kind<?>> kinds;
+  private volatile DirectoryNode node;
+  private volatile boolean valid = true;
+  private boolean signalled = false;
+
+  GfsWatchKey(GfsWatchService watcher, GitPath dir, DirectoryNode node, Set<WatchEvent.Kind<?>> kinds) {
+    this.watcher = watcher;
+    this.dir = dir;
+    this.node = node;
+    this.kinds = kinds;
+  }
+
+  @Nonnull
+  GitPath getDirectory() {
+    return dir;
+  }
+
+  @Nonnull
+  DirectoryNode getNode() {
+    return node;
+  }
+
+  void setNode(DirectoryNode node) {
+    this.node = node;
+  }
+
+  void setKinds(Set<WatchEvent.Kind<?>> kinds) {
+    this.kinds = kinds;
+  }
+
+  boolean accepts(WatchEvent.Kind<?> kind) {
+    return kind == OVERFLOW || kinds.contains(kind);
+  }
+
+  synchronized void signalEvent(WatchEvent.Kind<?> kind, @Nullable Object context) {
+    int size = events.size();
+    if(size > 0) {
+      Event<?> last = events.get(size - 1);
+      if(size >= MAX_EVENTS || last.kind() == kind && Objects.equals(context, last.context())) {
+        last.increment();
+        return;
+      }
+    }
+    if(size == MAX_EVENTS - 1) {
+      kind = OVERFLOW;
+      context = null;
+    }
+    events.add(new Event<>(kind, context));
+    signal();
+  }
+
+  synchronized void signal() {
+    if(!signalled) {
+      signalled = true;
+      watcher.enqueue(this);
+    }
+  }
+
+  void invalidate() {
+    valid = false;
+  }
+
+  @Override
+  public boolean isValid() {
+    return valid;
+  }
+
+  @Nonnull
+  @Override
+  public synchronized List<WatchEvent<?>> pollEvents() {
+    List<WatchEvent<?>> ret = new ArrayList<WatchEvent<?>>(events);
+    events.clear();
+    return ret;
+  }
+
+  @Override
+  public synchronized boolean reset() {
+    if(signalled && valid) {
+      if(events.isEmpty())
+        signalled = false;
+      else
+        watcher.enqueue(this);
+    }
+    return valid;
+  }
+
+  @Override
+  public void cancel() {
+    valid = false;
+    watcher.cancel(this);
+  }
+
+  @Nonnull
+  @Override
+  public GitPath watchable() {
+    return dir;
+  }
+
+  private static class Event<T> implements WatchEvent<T> {
+
+    private final Kind<T> kind;
+    private final T context;
+    private int count = 1;
+
+    @SuppressWarnings("unchecked")
+    private Event(Kind<?> kind, @Nullable Object context) {
+      this.kind = (Kind<T>) kind;
+      this.context = (T) context;
+    }
+
+    @Nonnull
+    @Override
+    public Kind<T> kind() {
+      return kind;
+    }
+
+    @Override
+    public int count() {
+      return count;
+    }
+
+    @Nullable
+    @Override
+    public T context() {
+      return context;
+    }
+
+    private void increment() {
+      count++;
+    }
+
+  }
+
+}
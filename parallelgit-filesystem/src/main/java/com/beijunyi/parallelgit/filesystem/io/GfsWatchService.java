@@ -0,0 +1,189 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Watches directories of a {@link GitFileSystem} for in-memory changes. Events are raised by the nodes themselves when
+ * children are added, removed or replaced, when file content or modes change, and when a checkout or reset discards
+ * the pending changes, so consumers can update incrementally instead of rescanning the tree.
+ */
+public class GfsWatchService implements WatchService {
+
+  private static final WatchKey CLOSE_KEY = new GfsWatchKey(null, null, null, Collections.<WatchEvent.Kind<?>>emptySet());
+
+  private final GitFileSystem gfs;
+  private final RootNode root;
+  private final Map<GitPath, GfsWatchKey> keys = new HashMap<>();
+  private final LinkedBlockingDeque<WatchKey> pending = new LinkedBlockingDeque<>();
+  private volatile Map<DirectoryNode, GfsWatchKey> watched = Collections.emptyMap();
+  private volatile boolean closed = false;
+
+  public GfsWatchService(GitFileSystem gfs) {
+    this.gfs = gfs;
+    root = gfs.getFileStore().getRoot();
+    root.addWatchService(this);
+  }
+
+  @Nonnull
+  public synchronized WatchKey register(GitPath dir, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) throws IOException {
+    checkOpen();
+    if(dir.getFileSystem() != gfs)
+      throw new ProviderMismatchException();
+    if(modifiers.length > 0)
+      throw new UnsupportedOperationException("Modifier not supported: " + modifiers[0]);
+    Set<WatchEvent.Kind<?>> kinds = new HashSet<>();
+    for(WatchEvent.Kind<?> kind : events) {
+      if(kind == ENTRY_CREATE || kind == ENTRY_DELETE || kind == ENTRY_MODIFY)
+        kinds.add(kind);
+      else if(kind != OVERFLOW)
+        throw new UnsupportedOperationException(kind.name());
+    }
+    GitPath path = dir.toRealPath();
+    Node found = GfsIO.getNode(path);
+    if(!(found instanceof DirectoryNode))
+      throw new NotDirectoryException(path.toString());
+    DirectoryNode node = (DirectoryNode) found;
+    GfsWatchKey key = keys.get(path);
+    if(key == null) {
+      key = new GfsWatchKey(this, path, node, kinds);
+      keys.put(path, key);
+    } else {
+      key.setKinds(kinds);
+    }
+    updateIndex();
+    return key;
+  }
+
+  @Nullable
+  @Override
+  public WatchKey poll() {
+    checkOpen();
+    return checkKey(pending.poll());
+  }
+
+  @Nullable
+  @Override
+  public WatchKey poll(long timeout, TimeUnit unit) throws InterruptedException {
+    checkOpen();
+    return checkKey(pending.poll(timeout, unit));
+  }
+
+  @Nonnull
+  @Override
+  public WatchKey take() throws InterruptedException {
+    checkOpen();
+    return checkKey(pending.take());
+  }
+
+  @Override
+  public void close() {
+    synchronized(this) {
+      if(closed)
+        return;
+      closed = true;
+      for(GfsWatchKey key : keys.values())
+        key.invalidate();
+      keys.clear();
+      watched = Collections.emptyMap();
+    }
+    root.removeWatchService(this);
+    pending.clear();
+    pending.offer(CLOSE_KEY);
+  }
+
+  boolean isWatching(DirectoryNode dir) {
+    return watched.containsKey(dir);
+  }
+
+  void signalEvent(DirectoryNode dir, String name, WatchEvent.Kind<Path> kind) {
+    GfsWatchKey key = watched.get(dir);
+    if(key != null && key.isValid() && key.accepts(kind))
+      key.signalEvent(kind, gfs.getPath(name));
+  }
+
+  /**
+   * Resolves the watched paths again after a subtree has been replaced or removed. A key whose directory was replaced
+   * by another node receives an {@link StandardWatchEventKinds#OVERFLOW} event since its entries may have changed in
+   * any way. Keys whose directory no longer exists are cancelled and signalled, so that {@link WatchKey#reset()}
+   * reports them as invalid.
+   */
+  synchronized void refresh() {
+    if(closed)
+      return;
+    Iterator<GfsWatchKey> it = keys.values().iterator();
+    while(it.hasNext()) {
+      GfsWatchKey key = it.next();
+      DirectoryNode node = resolve(key.getDirectory());
+      if(node == key.getNode())
+        continue;
+      if(node != null) {
+        key.setNode(node);
+        key.signalEvent(OVERFLOW, null);
+      } else {
+        it.remove();
+        key.invalidate();
+        key.signal();
+      }
+    }
+    updateIndex();
+  }
+
+  void overflow() {
+    refresh();
+    for(GfsWatchKey key : watched.values())
+      key.signalEvent(OVERFLOW, null);
+  }
+
+  void enqueue(GfsWatchKey key) {
+    pending.offer(key);
+  }
+
+  synchronized void cancel(GfsWatchKey key) {
+    if(keys.get(key.getDirectory()) == key) {
+      keys.remove(key.getDirectory());
+      updateIndex();
+    }
+  }
+
+  private void updateIndex() {
+    Map<DirectoryNode, GfsWatchKey> index = new IdentityHashMap<>();
+    for(GfsWatchKey key : keys.values())
+      index.put(key.getNode(), key);
+    watched = index;
+  }
+
+  @Nullable
+  private static DirectoryNode resolve(GitPath dir) {
+    try {
+      Node node = GfsIO.findNode(dir);
+      return node instanceof DirectoryNode ? (DirectoryNode) node : null;
+    } catch(IOException e) {
+      return null;
+    }
+  }
+
+  @Nullable
+  private WatchKey checkKey(@Nullable WatchKey key) {
+    if(key == CLOSE_KEY)
+      pending.offer(key);
+    checkOpen();
+    return key;
+  }
+
+  private void checkOpen() {
+    if(closed)
+      throw new ClosedWatchServiceException();
+  }
+
+}
@@ -1,6 +1,8 @@
 package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
+import java.nio.file.ReadOnlyFileSystemException;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -18,6 +20,8 @@ import static org.eclipse.jgit.lib.ObjectId.zeroId;
 
 public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
 
+  private static final AtomicReferenceFieldUpdater<Node, Object> DATA = AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "data");
+
   protected final GfsObjectService objService;
 
   protected volatile GitFileEntry origin = missingEntry();
@@ -26,6 +30,8 @@ public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
   protected volatile ObjectId id;
   protected volatile FileMode mode;
   protected volatile Data data;
+  protected volatile boolean dirty = true;
+  private volatile boolean exiled = false;
 
   protected Node(FileMode mode, GfsObjectService objService) {
     this.objService = objService;
@@ -84,13 +90,17 @@ public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
 
   @Nonnull
   public ObjectId getObjectId(boolean persist) throws IOException {
-    if(id == null || persist && !objService.hasObject(id)) {
+    if(id == null || persist && !isPersisted(id)) {
       Snapshot snapshot = takeSnapshot(persist);
       id = snapshot != null ? snapshot.getId() : zeroId();
     }
     return id;
   }
 
+  protected boolean isPersisted(ObjectId id) throws IOException {
+    return id.equals(origin.getId()) || objService.hasObject(id);
+  }
+
   @Nonnull
   public GitFileEntry getOrigin() {
     return origin;
@@ -98,6 +108,7 @@ public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
 
   public void updateOrigin(GitFileEntry entry) throws IOException {
     origin = entry;
+    dirty = !matches(entry);
   }
 
   @Nonnull
@@ -106,27 +117,47 @@ public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
   }
 
   public void setMode(FileMode mode) {
+    checkWritable();
     checkFileMode(mode);
     this.mode = mode;
+    dirty = true;
     invalidateParentCache();
+    fireModified();
   }
 
   public boolean isNew() throws IOException {
     return origin.isMissing();
   }
 
+  public boolean isDirty() {
+    return dirty;
+  }
+
   public boolean isModified() throws IOException {
+    if(!dirty)
+      return false;
     ObjectId id = getObjectId(false);
     return !origin.getId().equals(id) || !origin.getMode().equals(mode);
   }
 
+  /**
+   * Returns the data of this node, loading it on first access. Threads racing to load the data agree on the first one
+   * published, so concurrent readers never see two different copies.
+   */
   @Nonnull
   protected Data getData() throws IOException {
-    if(data != null)
-      return data;
+    Data ret = data;
+    if(ret != null)
+      return ret;
     if(id == null) throw new IllegalStateException();
-    data = loadData(loadSnapshot(id));
-    return data;
+    Snapshot snapshot = this.snapshot;
+    ret = loadData(snapshot != null && snapshot.getId().equals(id) ? snapshot : loadSnapshot(id));
+    if(!DATA.compareAndSet(this, null, ret)) {
+      Data current = data;
+      if(current != null)
+        ret = current;
+    }
+    return ret;
   }
 
   protected boolean isTrivial() throws IOException {
@@ -168,18 +199,49 @@ public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
     this.id = entry.getId();
     this.mode = entry.getMode();
     this.data = null;
+    dirty = !matches(origin);
     invalidateParentCache();
   }
 
+  protected void checkWritable() {
+    if(objService.isReadOnly()) throw new ReadOnlyFileSystemException();
+  }
+
   protected void invalidateParentCache() {
-    if(parent != null) {
-      parent.id = null;
-      parent.invalidateParentCache();
+    DirectoryNode node = parent;
+    while(node != null && (node.id != null || !node.dirty)) {
+      node.id = null;
+      node.dirty = true;
+      node = node.parent;
     }
   }
 
+  protected void fireModified() {
+    DirectoryNode parent = this.parent;
+    if(parent != null)
+      parent.fireChildModified(this);
+  }
+
+  protected void invalidateLookupCache() {
+    if(parent != null)
+      parent.invalidateLookupCache();
+  }
+
+  private boolean matches(GitFileEntry entry) {
+    ObjectId id = this.id;
+    return id != null && !isTrivial(id) && id.equals(entry.getId()) && mode.equals(entry.getMode());
+  }
+
   protected void exile() {
     parent = null;
+    exiled = true;
+  }
+
+  /**
+   * Tells whether this node has been detached from its tree by a removal, a replacement or a reset of an ancestor.
+   */
+  boolean isExiled() {
+    return exiled;
   }
 
   protected abstract Class<? extends Snapshot> getSnapshotType();
@@ -202,6 +264,9 @@ public abstract class Node<Snapshot extends ObjectSnapshot, Data> {
   @Nonnull
   protected abstract Node clone(DirectoryNode parent) throws IOException;
 
+  @Nonnull
+  protected abstract Node fork(DirectoryNode parent);
+
   protected static boolean isTrivial(ObjectId id) {
     return zeroId().equals(id);
   }
@@ -0,0 +1,107 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.filesystem.GitPath;
+
+/**
+ * Maps absolute paths to the nodes they resolved to. An entry stays valid until its node is exiled: removing,
+ * replacing or resetting a directory exiles the nodes loaded below it, so a change only invalidates the paths that
+ * went through the changed entry. Updating the origin of the whole tree starts a new generation, which invalidates
+ * every entry.
+ */
+final class NodeLookupCache {
+
+  static final int MAX_ENTRIES = 16384;
+
+  private final ConcurrentMap<GitPath, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong clock = new AtomicLong();
+
+  long getGeneration() {
+    return generation.get();
+  }
+
+  @Nullable
+  Node get(GitPath path) {
+    Entry entry = entries.get(path);
+    if(entry == null)
+      return null;
+    if(!isValid(entry)) {
+      entries.remove(path, entry);
+      return null;
+    }
+    entry.accessed = clock.incrementAndGet();
+    return entry.node;
+  }
+
+  void put(GitPath path, Node node, long resolvedGeneration) {
+    if(resolvedGeneration != generation.get())
+      return;
+    if(entries.size() >= MAX_ENTRIES)
+      evict();
+    entries.put(path, new Entry(node, resolvedGeneration, clock.incrementAndGet()));
+  }
+
+  void invalidate() {
+    generation.incrementAndGet();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  private boolean isValid(Entry entry) {
+    return entry.generation == generation.get() && !entry.node.isExiled();
+  }
+
+  /**
+   * Drops the entries that are no longer valid, and then the least recently used entries until a quarter of the
+   * capacity is free.
+   */
+  private void evict() {
+    Iterator<Map.Entry<GitPath, Entry>> it = entries.entrySet().iterator();
+    while(it.hasNext())
+      if(!isValid(it.next().getValue()))
+        it.remove();
+    int excess = entries.size() - MAX_ENTRIES * 3 / 4;
+    if(excess <= 0)
+      return;
+    long[] stamps = new long[entries.size()];
+    int count = 0;
+    for(Entry entry : entries.values()) {
+      if(count == stamps.length)
+        break;
+      stamps[count++] = entry.accessed;
+    }
+    if(count == 0)
+      return;
+    Arrays.sort(stamps, 0, count);
+    long threshold = stamps[Math.min(excess, count) - 1];
+    it = entries.entrySet().iterator();
+    while(it.hasNext())
+      if(it.next().getValue().accessed <= threshold)
+        it.remove();
+  }
+
+  private static class Entry {
+
+    private final Node node;
+    private final long generation;
+    private volatile long accessed;
+
+    private Entry(Node node, long generation, long accessed) {
+      this.node = node;
+      this.generation = generation;
+      this.accessed = accessed;
+    }
+
+  }
+
+}
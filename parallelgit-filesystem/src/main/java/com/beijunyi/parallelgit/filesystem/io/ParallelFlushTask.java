@@ -0,0 +1,130 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.beijunyi.parallelgit.filesystem.GfsBlobWriter;
+import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+
+import static org.eclipse.jgit.lib.ObjectId.zeroId;
+
+/**
+ * Persists a directory by hashing and inserting its modified files and subdirectories in parallel. Unmodified subtrees
+ * are skipped without touching the object database. Each worker thread inserts blobs through its own inserter, so blobs
+ * are deflated and written concurrently and hashed only once.
+ */
+class ParallelFlushTask extends RecursiveAction {
+
+  private final DirectoryNode dir;
+  private final GfsBlobWriter writer;
+
+  ParallelFlushTask(DirectoryNode dir, GfsBlobWriter writer) {
+    this.dir = dir;
+    this.writer = writer;
+  }
+
+  @Nonnull
+  static ObjectId flush(DirectoryNode dir, ForkJoinPool pool) throws IOException {
+    if(!needsFlush(dir))
+      return dir.id;
+    try(GfsBlobWriter writer = dir.getObjectService().newBlobWriter()) {
+      pool.invoke(new ParallelFlushTask(dir, writer));
+    } catch(FlushException e) {
+      throw e.getCause();
+    }
+    return dir.id;
+  }
+
+  @Override
+  protected void compute() {
+    try {
+      flush();
+    } catch(IOException e) {
+      throw new FlushException(e);
+    }
+  }
+
+  private void flush() throws IOException {
+    if(!dir.isInitialized()) {
+      dir.getObjectId(true);
+      return;
+    }
+    List<RecursiveAction> subtrees = new ArrayList<>();
+    List<InsertFileTask> files = new ArrayList<>();
+    for(Node child : dir.data.loaded().values()) {
+      if(!needsFlush(child))
+        continue;
+      if(child instanceof DirectoryNode)
+        subtrees.add(new ParallelFlushTask((DirectoryNode) child, writer));
+      else
+        files.add(new InsertFileTask((FileNode) child, writer));
+    }
+    List<RecursiveAction> tasks = new ArrayList<>(subtrees.size() + files.size());
+    tasks.addAll(subtrees);
+    tasks.addAll(files);
+    invokeAll(tasks);
+
+    for(InsertFileTask file : files)
+      file.node.id = file.id;
+    TreeSnapshot tree = captureTree();
+    if(tree != null)
+      dir.getObjectService().write(tree);
+    dir.id = tree != null ? tree.getId() : zeroId();
+  }
+
+  @Nullable
+  private TreeSnapshot captureTree() throws IOException {
+    DirectoryChildren data = dir.data;
+    if(dir.isTrivial(data))
+      return null;
+    return dir.captureData(data, false);
+  }
+
+  private static boolean needsFlush(Node node) throws IOException {
+    return node.isDirty() && (node.id == null || !node.isPersisted(node.id));
+  }
+
+  private static class InsertFileTask extends RecursiveAction {
+
+    private final FileNode node;
+    private final GfsBlobWriter writer;
+    private ObjectId id;
+
+    private InsertFileTask(FileNode node, GfsBlobWriter writer) {
+      this.node = node;
+      this.writer = writer;
+    }
+
+    @Override
+    protected void compute() {
+      if(!node.isInitialized())
+        throw new IllegalStateException();
+      try {
+        id = writer.insert(node.data);
+      } catch(IOException e) {
+        throw new FlushException(e);
+      }
+    }
+
+  }
+
+  private static class FlushException extends RuntimeException {
+
+    private FlushException(IOException cause) {
+      super(cause);
+    }
+
+    @Override
+    public synchronized IOException getCause() {
+      return (IOException) super.getCause();
+    }
+
+  }
+
+}
@@ -1,16 +1,23 @@
 package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
-import java.util.Map;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import javax.annotation.Nonnull;
 
 import com.beijunyi.parallelgit.filesystem.GfsObjectService;
+import com.beijunyi.parallelgit.utils.io.GitFileEntry;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 
 public class RootNode extends DirectoryNode {
 
+  private final NodeLookupCache lookupCache = new NodeLookupCache();
+  private final List<GfsWatchService> watchServices = new CopyOnWriteArrayList<>();
+
   public RootNode(ObjectId id, GfsObjectService objService) throws IOException {
     super(id, objService);
     updateOrigin(id);
@@ -20,6 +27,11 @@ public class RootNode extends DirectoryNode {
     super(objService);
   }
 
+  private RootNode(RootNode source) {
+    super(source.id, source.objService);
+    source.forkInto(this);
+  }
+
   @Nonnull
   public static RootNode fromCommit(RevCommit commit, GfsObjectService objService) throws IOException {
     return new RootNode(commit.getTree(), objService);
@@ -30,8 +42,78 @@ public class RootNode extends DirectoryNode {
     return new RootNode(objService);
   }
 
+  /**
+   * Creates an independent copy of this tree. Modified directories are copied down to their loaded children. Unmodified
+   * directories share their loaded tree entries and snapshot with the source, so the copy does not read them from the
+   * repository again.
+   */
+  @Nonnull
+  public RootNode fork() {
+    return new RootNode(this);
+  }
+
+  @Override
+  public void updateOrigin(GitFileEntry entry) throws IOException {
+    super.updateOrigin(entry);
+    invalidateLookupCache();
+  }
+
   @Override
-  protected boolean isTrivial(Map<String, Node> data) {
+  protected void reset(GitFileEntry entry) {
+    super.reset(entry);
+    for(GfsWatchService watcher : watchServices)
+      watcher.overflow();
+  }
+
+  @Override
+  protected boolean isTrivial(DirectoryChildren data) {
+    return false;
+  }
+
+  @Override
+  protected void invalidateLookupCache() {
+    lookupCache.invalidate();
+  }
+
+  @Nonnull
+  NodeLookupCache getLookupCache() {
+    return lookupCache;
+  }
+
+  void addWatchService(GfsWatchService watcher) {
+    watchServices.add(watcher);
+    objService.addWatcher();
+  }
+
+  void removeWatchService(GfsWatchService watcher) {
+    if(watchServices.remove(watcher))
+      objService.removeWatcher();
+  }
+
+  boolean hasWatchServices() {
+    return !watchServices.isEmpty();
+  }
+
+  boolean isWatched(DirectoryNode dir) {
+    for(GfsWatchService watcher : watchServices)
+      if(watcher.isWatching(dir))
+        return true;
     return false;
   }
+
+  void fireEvent(DirectoryNode dir, String name, WatchEvent.Kind<Path> kind) {
+    for(GfsWatchService watcher : watchServices)
+      watcher.signalEvent(dir, name, kind);
+  }
+
+  void refreshWatchKeys() {
+    for(GfsWatchService watcher : watchServices)
+      watcher.refresh();
+  }
+
+  public void closeWatchServices() {
+    for(GfsWatchService watcher : watchServices)
+      watcher.close();
+  }
+
 }
@@ -0,0 +1,31 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import javax.annotation.Nullable;
+
+import org.eclipse.jgit.lib.FileMode;
+
+public class UpdateMode extends GfsChange {
+
+  private final FileMode mode;
+
+  public UpdateMode(FileMode mode) {
+    this.mode = mode;
+  }
+
+  @Override
+  public void applyTo(DirectoryNode dir, String name, String path) throws IOException {
+    Node node = dir.getChild(name);
+    if(node == null)
+      throw new NoSuchFileException(path);
+    node.setMode(mode);
+  }
+
+  @Nullable
+  @Override
+  protected Node convertNode(@Nullable Node node, DirectoryNode parent) {
+    return node;
+  }
+
+}
@@ -0,0 +1,10 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+public enum GfsCounter {
+  OBJECTS_READ,
+  OBJECTS_WRITTEN,
+  CACHE_HITS,
+  CACHE_MISSES,
+  BYTES_INFLATED,
+  NODES_MATERIALIZED
+}
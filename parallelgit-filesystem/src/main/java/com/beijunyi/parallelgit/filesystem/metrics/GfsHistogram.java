@@ -0,0 +1,76 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free latency histogram with power-of-two buckets. Percentiles are accurate to within a factor of two.
+ */
+public class GfsHistogram {
+
+  private static final int BUCKETS = 64;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  private final AtomicLong count = new AtomicLong();
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long value) {
+    long normalized = Math.max(0, value);
+    buckets.incrementAndGet(bucketOf(normalized));
+    count.incrementAndGet();
+    total.addAndGet(normalized);
+    long current;
+    while(normalized > (current = max.get()) && !max.compareAndSet(current, normalized));
+  }
+
+  public long getCount() {
+    return count.get();
+  }
+
+  public long getTotal() {
+    return total.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  public double getMean() {
+    long n = count.get();
+    return n == 0 ? 0 : (double) total.get() / n;
+  }
+
+  public long getPercentile(double percentile) {
+    if(percentile < 0 || percentile > 100)
+      throw new IllegalArgumentException("Percentile must be between 0 and 100: " + percentile);
+    long n = count.get();
+    if(n == 0)
+      return 0;
+    long rank = Math.max(1, (long) Math.ceil(n * percentile / 100));
+    long seen = 0;
+    for(int i = 0; i < BUCKETS; i++) {
+      seen += buckets.get(i);
+      if(seen >= rank)
+        return Math.min(upperBoundOf(i), max.get());
+    }
+    return max.get();
+  }
+
+  public void clear() {
+    for(int i = 0; i < BUCKETS; i++)
+      buckets.set(i, 0);
+    count.set(0);
+    total.set(0);
+    max.set(0);
+  }
+
+  private static int bucketOf(long value) {
+    return value == 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+  }
+
+  private static long upperBoundOf(int bucket) {
+    return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+
+}
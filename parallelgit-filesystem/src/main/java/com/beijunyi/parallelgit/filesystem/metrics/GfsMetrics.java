@@ -0,0 +1,15 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+/**
+ * Receives the counters and latencies emitted by a {@link com.beijunyi.parallelgit.filesystem.GitFileSystem}.
+ * Implementations are called on the threads doing the work and must be thread-safe and cheap.
+ */
+public interface GfsMetrics {
+
+  GfsMetrics NONE = new NoOpGfsMetrics();
+
+  void increment(GfsCounter counter, long delta);
+
+  void record(GfsTimer timer, long nanos);
+
+}
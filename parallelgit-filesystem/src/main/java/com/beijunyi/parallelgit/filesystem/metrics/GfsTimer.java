@@ -0,0 +1,12 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+public enum GfsTimer {
+  OBJECT_READ,
+  OBJECT_WRITE,
+  FLUSH,
+  COMMIT,
+  CHECKOUT_COLLECT,
+  CHECKOUT_APPLY,
+  MERGE,
+  MERGE_RESOLVE
+}
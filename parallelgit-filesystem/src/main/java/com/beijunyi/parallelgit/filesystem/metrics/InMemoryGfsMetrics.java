@@ -0,0 +1,49 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+
+/**
+ * Keeps every counter and latency histogram in memory. Useful in tests and for periodic export to a monitoring system.
+ */
+public class InMemoryGfsMetrics implements GfsMetrics {
+
+  private final Map<GfsCounter, AtomicLong> counters = new EnumMap<>(GfsCounter.class);
+  private final Map<GfsTimer, GfsHistogram> timers = new EnumMap<>(GfsTimer.class);
+
+  public InMemoryGfsMetrics() {
+    for(GfsCounter counter : GfsCounter.values())
+      counters.put(counter, new AtomicLong());
+    for(GfsTimer timer : GfsTimer.values())
+      timers.put(timer, new GfsHistogram());
+  }
+
+  @Override
+  public void increment(GfsCounter counter, long delta) {
+    counters.get(counter).addAndGet(delta);
+  }
+
+  @Override
+  public void record(GfsTimer timer, long nanos) {
+    timers.get(timer).record(nanos);
+  }
+
+  public long getCount(GfsCounter counter) {
+    return counters.get(counter).get();
+  }
+
+  @Nonnull
+  public GfsHistogram getHistogram(GfsTimer timer) {
+    return timers.get(timer);
+  }
+
+  public void clear() {
+    for(AtomicLong counter : counters.values())
+      counter.set(0);
+    for(GfsHistogram histogram : timers.values())
+      histogram.clear();
+  }
+
+}
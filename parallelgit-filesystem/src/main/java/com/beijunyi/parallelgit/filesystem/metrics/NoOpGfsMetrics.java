@@ -0,0 +1,13 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+final class NoOpGfsMetrics implements GfsMetrics {
+
+  @Override
+  public void increment(GfsCounter counter, long delta) {
+  }
+
+  @Override
+  public void record(GfsTimer timer, long nanos) {
+  }
+
+}
@@ -0,0 +1,4 @@
+@ParametersAreNonnullByDefault
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+import javax.annotation.ParametersAreNonnullByDefault;
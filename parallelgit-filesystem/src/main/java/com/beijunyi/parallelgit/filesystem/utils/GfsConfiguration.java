@@ -5,10 +5,13 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Path;
 import java.util.Map;
+import java.util.concurrent.Executor;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.beijunyi.parallelgit.filesystem.GfsObjectCache;
 import com.beijunyi.parallelgit.filesystem.exceptions.HeadAlreadyDefinedException;
+import com.beijunyi.parallelgit.filesystem.metrics.GfsMetrics;
 import com.beijunyi.parallelgit.utils.RefUtils;
 import org.eclipse.jgit.internal.storage.dfs.DfsRepositoryDescription;
 import org.eclipse.jgit.internal.storage.dfs.InMemoryRepository;
@@ -18,6 +21,8 @@ import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import static com.beijunyi.parallelgit.filesystem.GitFileSystemProvider.*;
+import static com.beijunyi.parallelgit.filesystem.io.GfsSeekableByteChannel.DEFAULT_WRITE_BUFFER_THRESHOLD;
+import static com.beijunyi.parallelgit.filesystem.io.GfsSeekableReadOnlyByteChannel.DEFAULT_READ_BUFFER_THRESHOLD;
 import static com.beijunyi.parallelgit.utils.BranchUtils.branchExists;
 import static com.beijunyi.parallelgit.utils.CommitUtils.*;
 import static com.beijunyi.parallelgit.utils.RepositoryUtils.*;
@@ -27,6 +32,15 @@ public class GfsConfiguration {
   private final Repository repo;
   private String branch;
   private RevCommit commit;
+  private int readerPoolSize = 1;
+  private GfsObjectCache objectCache;
+  private int writeBufferThreshold = DEFAULT_WRITE_BUFFER_THRESHOLD;
+  private int readBufferThreshold = DEFAULT_READ_BUFFER_THRESHOLD;
+  private int flushParallelism = 1;
+  private GfsMetrics metrics = GfsMetrics.NONE;
+  private Executor commandExecutor;
+  private boolean readOnly = false;
+  private int pathInternCapacity = 0;
 
   public GfsConfiguration(Repository repo) {
     this.repo = repo;
@@ -122,6 +136,117 @@ public class GfsConfiguration {
     return commit;
   }
 
+  @Nonnull
+  public GfsConfiguration readerPoolSize(int size) {
+    if(size < 1)
+      throw new IllegalArgumentException("Reader pool size must be positive: " + size);
+    this.readerPoolSize = size;
+    return this;
+  }
+
+  public int readerPoolSize() {
+    return readerPoolSize;
+  }
+
+  @Nonnull
+  public GfsConfiguration objectCache(@Nullable GfsObjectCache cache) {
+    this.objectCache = cache;
+    return this;
+  }
+
+  @Nullable
+  public GfsObjectCache objectCache() {
+    return objectCache;
+  }
+
+  @Nonnull
+  public GfsConfiguration writeBufferThreshold(int threshold) {
+    if(threshold < 0)
+      throw new IllegalArgumentException("Write buffer threshold must not be negative: " + threshold);
+    this.writeBufferThreshold = threshold;
+    return this;
+  }
+
+  public int writeBufferThreshold() {
+    return writeBufferThreshold;
+  }
+
+  @Nonnull
+  public GfsConfiguration readBufferThreshold(int threshold) {
+    if(threshold < 0)
+      throw new IllegalArgumentException("Read buffer threshold must not be negative: " + threshold);
+    this.readBufferThreshold = threshold;
+    return this;
+  }
+
+  public int readBufferThreshold() {
+    return readBufferThreshold;
+  }
+
+  @Nonnull
+  public GfsConfiguration flushParallelism(int parallelism) {
+    if(parallelism < 1)
+      throw new IllegalArgumentException("Flush parallelism must be positive: " + parallelism);
+    this.flushParallelism = parallelism;
+    return this;
+  }
+
+  public int flushParallelism() {
+    return flushParallelism;
+  }
+
+  @Nonnull
+  public GfsConfiguration metrics(GfsMetrics metrics) {
+    this.metrics = metrics;
+    return this;
+  }
+
+  @Nonnull
+  public GfsMetrics metrics() {
+    return metrics;
+  }
+
+  @Nonnull
+  public GfsConfiguration commandExecutor(@Nullable Executor executor) {
+    this.commandExecutor = executor;
+    return this;
+  }
+
+  @Nullable
+  public Executor commandExecutor() {
+    return commandExecutor;
+  }
+
+  /**
+   * Opens the file system without an object inserter. Reads in a read-only file system borrow object readers from a
+   * pool and look up directory children without locking. A shared {@link GfsObjectCache} still synchronizes its
+   * accesses.
+   */
+  @Nonnull
+  public GfsConfiguration readOnly(boolean readOnly) {
+    this.readOnly = readOnly;
+    return this;
+  }
+
+  public boolean readOnly() {
+    return readOnly;
+  }
+
+  /**
+   * Sets how many directory paths each file system interns. Zero disables interning.
+   */
+  @Nonnull
+  public GfsConfiguration pathInternCapacity(int capacity) {
+    if(capacity < 0)
+      throw new IllegalArgumentException("Path intern capacity must not be negative: " + capacity);
+    this.pathInternCapacity = capacity;
+    return this;
+  }
+
+  public int pathInternCapacity() {
+    return pathInternCapacity;
+  }
+
   @Nonnull
   private GfsConfiguration readProperties(Map<String, ?> props) throws IOException {
     String branch = (String) props.get(BRANCH);
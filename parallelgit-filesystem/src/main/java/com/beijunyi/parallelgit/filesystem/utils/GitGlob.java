@@ -0,0 +1,414 @@
+package com.beijunyi.parallelgit.filesystem.utils;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+/**
+ * A glob compiled to a sequence of matchers that run directly on the UTF-8 bytes of a path. It accepts the same
+ * syntax as {@link GitGlobs#toRegexPattern(String)} and matches the same paths, but it can also tell whether any
+ * descendant of a directory may match, so that walkers can skip whole subtrees that fall outside the pattern's
+ * literal prefix. Groups are expanded into alternatives when the glob is compiled.
+ */
+public final class GitGlob {
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final char EOL = 0;
+
+  private static final int LITERAL = 0;
+  private static final int ANY_CHAR = 1;
+  private static final int ANY_CHARS = 2;
+  private static final int ANY_PATH = 3;
+  private static final int CHAR_CLASS = 4;
+
+  private final String glob;
+  private final Token[][] alternatives;
+  private final byte[] literalPrefix;
+
+  private GitGlob(String glob, Token[][] alternatives) {
+    this.glob = glob;
+    this.alternatives = alternatives;
+    this.literalPrefix = commonLiteralPrefix(alternatives);
+  }
+
+  @Nonnull
+  public static GitGlob compile(String glob) {
+    GitGlobs.toRegexPattern(glob);
+    return new GitGlob(glob, new Parser(glob).parse());
+  }
+
+  /**
+   * Returns the literal text that every matching path starts with.
+   */
+  @Nonnull
+  public String getLiteralPrefix() {
+    return new String(literalPrefix, UTF_8);
+  }
+
+  public boolean matches(CharSequence path) {
+    return matches(encode(path));
+  }
+
+  public boolean matches(byte[] path) {
+    return matches(path, 0, path.length);
+  }
+
+  public boolean matches(byte[] path, int offset, int length) {
+    if(!startsWith(path, offset, length, literalPrefix))
+      return false;
+    for(Token[] tokens : alternatives)
+      if(match(tokens, 0, path, offset, offset + length, false))
+        return true;
+    return false;
+  }
+
+  /**
+   * Returns {@code false} if no path below the given directory can match this glob. A {@code true} result is
+   * conservative: it does not guarantee that a matching descendant exists.
+   */
+  public boolean matchesDescendantOf(CharSequence dir) {
+    return matchesDescendantOf(encode(dir));
+  }
+
+  public boolean matchesDescendantOf(byte[] dir) {
+    return matchesDescendantOf(dir, 0, dir.length);
+  }
+
+  /**
+   * Checks the UTF-8 encoded directory in the given range. A directory that already ends with a slash is matched in
+   * place; otherwise it is copied once to append the slash.
+   */
+  public boolean matchesDescendantOf(byte[] dir, int offset, int length) {
+    if(length > 0 && dir[offset + length - 1] != '/') {
+      byte[] prefix = Arrays.copyOfRange(dir, offset, offset + length + 1);
+      prefix[length] = '/';
+      return matchesDescendantOf(prefix, 0, prefix.length);
+    }
+    int common = Math.min(length, literalPrefix.length);
+    for(int i = 0; i < common; i++)
+      if(dir[offset + i] != literalPrefix[i])
+        return false;
+    for(Token[] tokens : alternatives)
+      if(match(tokens, 0, dir, offset, offset + length, true))
+        return true;
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return glob;
+  }
+
+  private static boolean match(Token[] tokens, int ti, byte[] path, int pos, int end, boolean partial) {
+    while(ti < tokens.length) {
+      if(partial && pos == end)
+        return true;
+      Token token = tokens[ti];
+      switch(token.kind) {
+        case LITERAL:
+          byte[] literal = token.literal;
+          int length = Math.min(literal.length, end - pos);
+          for(int i = 0; i < length; i++)
+            if(path[pos + i] != literal[i])
+              return false;
+          if(length < literal.length)
+            return partial;
+          pos += length;
+          break;
+        case ANY_CHAR:
+        case CHAR_CLASS:
+          if(pos == end || path[pos] == '/')
+            return false;
+          if(token.kind == CHAR_CLASS && !token.accepts(codePointAt(path, pos, end)))
+            return false;
+          pos = nextChar(path, pos, end);
+          break;
+        case ANY_CHARS:
+          while(true) {
+            if(match(tokens, ti + 1, path, pos, end, partial))
+              return true;
+            if(pos == end || path[pos] == '/')
+              return false;
+            pos = nextChar(path, pos, end);
+          }
+        case ANY_PATH:
+          while(true) {
+            if(match(tokens, ti + 1, path, pos, end, partial))
+              return true;
+            if(pos == end)
+              return false;
+            pos = nextChar(path, pos, end);
+          }
+        default:
+          throw new IllegalStateException();
+      }
+      ti++;
+    }
+    return !partial && pos == end;
+  }
+
+  private static int nextChar(byte[] path, int pos, int end) {
+    int c = path[pos] & 0xff;
+    int length = c >= 0xf0 ? 4 : c >= 0xe0 ? 3 : c >= 0xc0 ? 2 : 1;
+    return Math.min(pos + length, end);
+  }
+
+  private static int codePointAt(byte[] path, int pos, int end) {
+    int c = path[pos] & 0xff;
+    if(c < 0x80)
+      return c;
+    int extra = c >= 0xf0 ? 3 : c >= 0xe0 ? 2 : c >= 0xc0 ? 1 : 0;
+    int ret = c & (0x3f >> extra);
+    for(int i = 1; i <= extra && pos + i < end; i++)
+      ret = (ret << 6) | (path[pos + i] & 0x3f);
+    return ret;
+  }
+
+  private static boolean startsWith(byte[] bytes, int offset, int length, byte[] prefix) {
+    if(length < prefix.length)
+      return false;
+    for(int i = 0; i < prefix.length; i++)
+      if(bytes[offset + i] != prefix[i])
+        return false;
+    return true;
+  }
+
+  @Nonnull
+  private static byte[] commonLiteralPrefix(Token[][] alternatives) {
+    byte[] ret = null;
+    for(Token[] tokens : alternatives) {
+      byte[] literal = tokens.length > 0 && tokens[0].kind == LITERAL ? tokens[0].literal : new byte[0];
+      if(ret == null) {
+        ret = literal;
+        continue;
+      }
+      int length = 0;
+      while(length < ret.length && length < literal.length && ret[length] == literal[length])
+        length++;
+      if(length < ret.length) {
+        byte[] shorter = new byte[length];
+        System.arraycopy(ret, 0, shorter, 0, length);
+        ret = shorter;
+      }
+    }
+    return ret != null ? ret : new byte[0];
+  }
+
+  @Nonnull
+  private static byte[] encode(CharSequence str) {
+    return str.toString().getBytes(UTF_8);
+  }
+
+  private static class Token {
+
+    private final int kind;
+    private final byte[] literal;
+    private final int[] ranges;
+    private final boolean negated;
+
+    private Token(int kind, byte[] literal, int[] ranges, boolean negated) {
+      this.kind = kind;
+      this.literal = literal;
+      this.ranges = ranges;
+      this.negated = negated;
+    }
+
+    @Nonnull
+    static Token of(int kind) {
+      return new Token(kind, null, null, false);
+    }
+
+    @Nonnull
+    static Token literal(String text) {
+      return new Token(LITERAL, text.getBytes(UTF_8), null, false);
+    }
+
+    @Nonnull
+    static Token charClass(int[] ranges, boolean negated) {
+      return new Token(CHAR_CLASS, null, ranges, negated);
+    }
+
+    boolean accepts(int c) {
+      boolean found = false;
+      for(int i = 0; i < ranges.length && !found; i += 2)
+        found = c >= ranges[i] && c <= ranges[i + 1];
+      return found != negated;
+    }
+
+  }
+
+  /**
+   * Parses a glob that has already been validated by {@link GitGlobs#toRegexPattern(String)}.
+   */
+  private static class Parser {
+
+    private final String glob;
+    private final StringBuilder literal = new StringBuilder();
+    private List<List<Token>> expansions = new ArrayList<>();
+    private List<List<Token>> group;
+    private int i = 0;
+
+    private Parser(String glob) {
+      this.glob = glob;
+      expansions.add(new ArrayList<Token>());
+    }
+
+    @Nonnull
+    Token[][] parse() {
+      while(i < glob.length()) {
+        char c = glob.charAt(i++);
+        switch(c) {
+          case '\\':
+            literal.append(glob.charAt(i++));
+            break;
+          case '[':
+            append(parseClass());
+            break;
+          case '{':
+            flushLiteral();
+            group = new ArrayList<>();
+            group.add(new ArrayList<Token>());
+            break;
+          case '}':
+            if(group != null)
+              closeGroup();
+            else
+              literal.append(c);
+            break;
+          case ',':
+            if(group != null) {
+              flushLiteral();
+              group.add(new ArrayList<Token>());
+            } else {
+              literal.append(c);
+            }
+            break;
+          case '*':
+            if(charAt(i) == '*') {
+              append(Token.of(ANY_PATH));
+              i++;
+            } else {
+              append(Token.of(ANY_CHARS));
+            }
+            break;
+          case '?':
+            append(Token.of(ANY_CHAR));
+            break;
+          default:
+            literal.append(c);
+        }
+      }
+      flushLiteral();
+      Token[][] ret = new Token[expansions.size()][];
+      for(int k = 0; k < ret.length; k++)
+        ret[k] = mergeLiterals(expansions.get(k)).toArray(new Token[0]);
+      return ret;
+    }
+
+    @Nonnull
+    private Token parseClass() {
+      List<Integer> ranges = new ArrayList<>();
+      boolean negated = false;
+      if(charAt(i) == '^') {
+        addRange(ranges, '^', '^');
+        i++;
+      } else {
+        if(charAt(i) == '!') {
+          negated = true;
+          i++;
+        }
+        if(charAt(i) == '-') {
+          addRange(ranges, '-', '-');
+          i++;
+        }
+      }
+      boolean hasRangeStart = false;
+      while(i < glob.length()) {
+        char c = glob.charAt(i++);
+        if(c == ']')
+          break;
+        if(c == '-' && hasRangeStart) {
+          char rangeEnd = charAt(i++);
+          if(rangeEnd == EOL || rangeEnd == ']') {
+            addRange(ranges, '-', '-');
+            break;
+          }
+          ranges.set(ranges.size() - 1, (int) rangeEnd);
+          hasRangeStart = false;
+        } else {
+          addRange(ranges, c, c);
+          hasRangeStart = true;
+        }
+      }
+      int[] ret = new int[ranges.size()];
+      for(int k = 0; k < ret.length; k++)
+        ret[k] = ranges.get(k);
+      return Token.charClass(ret, negated);
+    }
+
+    private void append(Token token) {
+      flushLiteral();
+      add(token);
+    }
+
+    private void flushLiteral() {
+      if(literal.length() == 0)
+        return;
+      add(Token.literal(literal.toString()));
+      literal.setLength(0);
+    }
+
+    private void add(Token token) {
+      if(group != null) {
+        group.get(group.size() - 1).add(token);
+        return;
+      }
+      for(List<Token> expansion : expansions)
+        expansion.add(token);
+    }
+
+    private void closeGroup() {
+      flushLiteral();
+      List<List<Token>> ret = new ArrayList<>(expansions.size() * group.size());
+      for(List<Token> expansion : expansions) {
+        for(List<Token> alternative : group) {
+          List<Token> tokens = new ArrayList<>(expansion);
+          tokens.addAll(alternative);
+          ret.add(tokens);
+        }
+      }
+      expansions = ret;
+      group = null;
+    }
+
+    @Nonnull
+    private static List<Token> mergeLiterals(List<Token> tokens) {
+      List<Token> ret = new ArrayList<>(tokens.size());
+      for(Token token : tokens) {
+        Token last = ret.isEmpty() ? null : ret.get(ret.size() - 1);
+        if(last != null && last.kind == LITERAL && token.kind == LITERAL) {
+          byte[] merged = new byte[last.literal.length + token.literal.length];
+          System.arraycopy(last.literal, 0, merged, 0, last.literal.length);
+          System.arraycopy(token.literal, 0, merged, last.literal.length, token.literal.length);
+          ret.set(ret.size() - 1, new Token(LITERAL, merged, null, false));
+        } else {
+          ret.add(token);
+        }
+      }
+      return ret;
+    }
+
+    private char charAt(int index) {
+      return index < glob.length() ? glob.charAt(index) : EOL;
+    }
+
+    private static void addRange(List<Integer> ranges, int from, int to) {
+      ranges.add(from);
+      ranges.add(to);
+    }
+
+  }
+
+}
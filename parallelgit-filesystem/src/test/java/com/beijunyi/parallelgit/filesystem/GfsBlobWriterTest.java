@@ -0,0 +1,58 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GfsBlobWriterTest extends PreSetupGitFileSystemTest {
+
+  private GfsBlobWriter writer;
+
+  @Before
+  public void setUpWriter() {
+    writer = objService.newBlobWriter();
+  }
+
+  @Test
+  public void insertBlob_theIdShouldEqualToTheBlobHash() throws IOException {
+    byte[] data = someBytes();
+    ObjectId id = writer.insert(data);
+    writer.close();
+    assertEquals(calculateBlobId(data), id);
+    assertArrayEquals(data, repo.open(id).getBytes());
+  }
+
+  @Test
+  public void insertBlobsConcurrently_theBlobsShouldBeReadableAfterClose() throws Exception {
+    final List<byte[]> contents = new ArrayList<>();
+    for(int i = 0; i < 32; i++)
+      contents.add(someBytes());
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<ObjectId>> results = new ArrayList<>();
+    try {
+      for(final byte[] content : contents) {
+        results.add(executor.submit(new Callable<ObjectId>() {
+          @Override
+          public ObjectId call() throws Exception {
+            return writer.insert(content);
+          }
+        }));
+      }
+      for(Future<ObjectId> result : results)
+        result.get();
+    } finally {
+      executor.shutdown();
+    }
+    writer.close();
+    for(int i = 0; i < contents.size(); i++)
+      assertArrayEquals(contents.get(i), repo.open(results.get(i).get()).getBytes());
+  }
+
+}
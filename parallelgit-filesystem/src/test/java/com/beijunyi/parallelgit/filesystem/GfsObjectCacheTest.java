@@ -0,0 +1,109 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
+import com.beijunyi.parallelgit.utils.io.TreeSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.junit.Assert.*;
+
+public class GfsObjectCacheTest extends AbstractGitFileSystemTest {
+
+  private GfsObjectCache cache;
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+    cache = new GfsObjectCache();
+  }
+
+  @Test
+  public void readTreeTwice_theSecondResultShouldBeTheCachedSnapshot() throws IOException {
+    writeSomethingToCache();
+    RevCommit commit = commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache)));
+    TreeSnapshot first = objService.readTree(commit.getTree());
+    assertSame(first, objService.readTree(commit.getTree()));
+  }
+
+  @Test
+  public void readSmallBlobTwice_theSecondResultShouldBeTheCachedSnapshot() throws IOException {
+    ObjectId blob = writeToCache("/test_file.txt", someBytes());
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache)));
+    BlobSnapshot first = objService.readBlob(blob);
+    assertSame(first, objService.readBlob(blob));
+  }
+
+  @Test
+  public void readBlobLargerThanMaxBlobSize_theBlobShouldNotBeCached() throws IOException {
+    byte[] content = new byte[128];
+    ObjectId blob = writeToCache("/test_file.txt", content);
+    commitToMaster();
+    cache = new GfsObjectCache(1024 * 1024, 64);
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache)));
+    assertArrayEquals(content, objService.readBlob(blob).getData());
+    assertNull(cache.getBlob(blob));
+  }
+
+  @Test
+  public void shareCacheBetweenFileSystems_theSecondFileSystemShouldReuseTheRootTree() throws IOException {
+    writeSomethingToCache();
+    RevCommit commit = commitToMaster();
+    try(GitFileSystem first = Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache))) {
+      first.getObjectService().readTree(commit.getTree());
+    }
+    assertNotNull(cache.getTree(commit.getTree()));
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache)));
+    assertSame(cache.getTree(commit.getTree()), objService.readTree(commit.getTree()));
+  }
+
+  @Test
+  public void readCachedBlobAfterOriginalFileSystemIsClosed_theResultShouldContainTheBlobData() throws IOException {
+    byte[] expected = someBytes();
+    writeToCache("/test_file.txt", expected);
+    commitToMaster();
+    try(GitFileSystem first = Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache))) {
+      assertArrayEquals(expected, Files.readAllBytes(first.getPath("/test_file.txt")));
+    }
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache)));
+    assertArrayEquals(expected, Files.readAllBytes(gfs.getPath("/test_file.txt")));
+  }
+
+  @Test
+  public void writeToCachedFile_theCachedBlobShouldNotChange() throws IOException {
+    byte[] expected = someBytes();
+    ObjectId blob = writeToCache("/test_file.txt", expected);
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).objectCache(cache)));
+    Files.write(gfs.getPath("/test_file.txt"), new byte[] {1, 2, 3}, WRITE);
+    BlobSnapshot cached = cache.getBlob(blob);
+    assertNotNull(cached);
+    assertArrayEquals(expected, cached.getData());
+  }
+
+  @Test
+  public void putObjectsBeyondMaxWeight_theLeastRecentlyUsedObjectShouldBeEvicted() throws IOException {
+    cache = new GfsObjectCache(400, 200);
+    BlobSnapshot first = BlobSnapshot.capture(new byte[100]);
+    BlobSnapshot second = BlobSnapshot.capture(new byte[101]);
+    BlobSnapshot third = BlobSnapshot.capture(new byte[102]);
+    cache.put(first);
+    cache.put(second);
+    cache.getBlob(first.getId());
+    cache.put(third);
+    assertNotNull(cache.getBlob(first.getId()));
+    assertNull(cache.getBlob(second.getId()));
+    assertNotNull(cache.getBlob(third.getId()));
+    assertTrue(cache.getWeight() <= cache.getMaxWeight());
+  }
+
+}
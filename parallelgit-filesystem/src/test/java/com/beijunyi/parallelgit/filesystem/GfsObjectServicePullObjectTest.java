@@ -0,0 +1,90 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.metrics.InMemoryGfsMetrics;
+import com.beijunyi.parallelgit.utils.RepositoryUtils;
+import com.beijunyi.parallelgit.utils.TreeUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsCounter.OBJECTS_WRITTEN;
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static org.junit.Assert.*;
+
+public class GfsObjectServicePullObjectTest extends AbstractGitFileSystemTest {
+
+  private RevCommit commit;
+  private GfsObjectService source;
+  private GfsObjectService target;
+  private InMemoryGfsMetrics metrics;
+  private File targetDir;
+
+  @Before
+  public void setUp() throws IOException {
+    initFileRepository(true);
+    writeToCache("/dir/file1.txt");
+    writeToCache("/dir/sub/file2.txt");
+    writeToCache("/other/file3.txt");
+    commit = commitToMaster();
+    source = new GfsObjectService(repo(repo));
+    metrics = new InMemoryGfsMetrics();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if(target != null)
+      target.close();
+    if(targetDir != null)
+      FileUtils.delete(targetDir, FileUtils.RECURSIVE);
+  }
+
+  @Test
+  public void pullTreeFromAnotherRepository_theTreeAndAllItsChildrenShouldBeCopied() throws IOException {
+    target = new GfsObjectService(repo(new TestRepository()).metrics(metrics));
+    ObjectId tree = TreeUtils.getObjectId("/dir", commit.getTree(), repo);
+    target.pullObject(tree, source);
+    assertTrue(target.hasObject(tree));
+    assertTrue(target.hasObject(TreeUtils.getObjectId("/dir/sub", commit.getTree(), repo)));
+    assertTrue(target.hasObject(TreeUtils.getObjectId("/dir/sub/file2.txt", commit.getTree(), repo)));
+    assertEquals(4, metrics.getCount(OBJECTS_WRITTEN));
+  }
+
+  @Test
+  public void pullTreeWhenSubtreeExists_onlyTheMissingObjectsShouldBeCopied() throws IOException {
+    target = new GfsObjectService(repo(new TestRepository()).metrics(metrics));
+    target.pullObject(TreeUtils.getObjectId("/dir/sub", commit.getTree(), repo), source);
+    metrics.clear();
+    target.pullObject(commit.getTree(), source);
+    assertTrue(target.hasObject(commit.getTree()));
+    assertEquals(5, metrics.getCount(OBJECTS_WRITTEN));
+  }
+
+  @Test
+  public void pullObjectFromTheSameRepository_nothingShouldBeCopied() throws IOException {
+    target = new GfsObjectService(repo(RepositoryUtils.openRepository(repo.getDirectory(), true)).metrics(metrics));
+    target.pullObject(commit.getTree(), source);
+    assertEquals(0, metrics.getCount(OBJECTS_WRITTEN));
+  }
+
+  @Test
+  public void pullObjectFromAlternateRepository_nothingShouldBeCopied() throws IOException {
+    targetDir = FileUtils.createTempDir(getClass().getSimpleName(), null, null);
+    Repository targetRepo = RepositoryUtils.createRepository(targetDir, true);
+    File alternates = new File(targetRepo.getDirectory(), "objects/info/alternates");
+    Files.write(alternates.toPath(), singletonList(new File(repo.getDirectory(), "objects").getAbsolutePath()), UTF_8);
+    target = new GfsObjectService(repo(targetRepo).metrics(metrics));
+    target.pullObject(commit.getTree(), source);
+    assertEquals(0, metrics.getCount(OBJECTS_WRITTEN));
+  }
+
+}
@@ -0,0 +1,133 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.junit.Assert.*;
+
+public class GfsObjectServiceReaderPoolTest extends AbstractGitFileSystemTest {
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+  }
+
+  @Test
+  public void readBlobsConcurrentlyWithReaderPool_theResultsShouldContainTheBlobData() throws Exception {
+    final List<byte[]> contents = new ArrayList<>();
+    final List<ObjectId> blobs = new ArrayList<>();
+    for(int i = 0; i < 16; i++) {
+      byte[] content = someBytes();
+      contents.add(content);
+      blobs.add(writeToCache("/file" + i + ".txt", content));
+    }
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).readerPoolSize(4)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for(final ObjectId blob : blobs) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            return objService.readBlob(blob).getData();
+          }
+        }));
+      }
+      for(int i = 0; i < blobs.size(); i++)
+        assertArrayEquals(contents.get(i), results.get(i).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void loadSnapshotsConcurrentlyAfterReading_theResultsShouldContainTheBlobData() throws Exception {
+    List<byte[]> contents = new ArrayList<>();
+    List<ObjectId> blobs = new ArrayList<>();
+    for(int i = 0; i < 16; i++) {
+      byte[] content = someBytes();
+      contents.add(content);
+      blobs.add(writeToCache("/file" + i + ".txt", content));
+    }
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).readerPoolSize(1)));
+
+    List<BlobSnapshot> snapshots = new ArrayList<>();
+    for(ObjectId blob : blobs)
+      snapshots.add(objService.readBlob(blob));
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for(final BlobSnapshot snapshot : snapshots) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            objService.hasObject(snapshot.getId());
+            return snapshot.getData();
+          }
+        }));
+      }
+      for(int i = 0; i < blobs.size(); i++)
+        assertArrayEquals(contents.get(i), results.get(i).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void readBlobsConcurrentlyInReadOnlyMode_theResultsShouldContainTheBlobData() throws Exception {
+    List<byte[]> contents = new ArrayList<>();
+    List<ObjectId> blobs = new ArrayList<>();
+    for(int i = 0; i < 64; i++) {
+      byte[] content = someBytes();
+      contents.add(content);
+      blobs.add(writeToCache("/file" + i + ".txt", content));
+    }
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).readOnly(true)));
+
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for(final ObjectId blob : blobs) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws Exception {
+            assertTrue(objService.hasObject(blob));
+            return objService.readBlob(blob).getData();
+          }
+        }));
+      }
+      for(int i = 0; i < blobs.size(); i++)
+        assertArrayEquals(contents.get(i), results.get(i).get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void getBlobSizeWithReaderPool_theResultShouldEqualToTheBlobLength() throws IOException {
+    byte[] content = someBytes();
+    ObjectId blob = writeToCache("/test_file.txt", content);
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).readerPoolSize(2)));
+    assertEquals(content.length, objService.getBlobSize(blob));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setNonPositiveReaderPoolSize_shouldThrowIllegalArgumentException() {
+    repo(repo).readerPoolSize(0);
+  }
+
+}
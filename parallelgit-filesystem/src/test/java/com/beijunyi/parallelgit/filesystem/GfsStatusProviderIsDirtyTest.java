@@ -34,6 +34,22 @@ public class GfsStatusProviderIsDirtyTest extends PreSetupGitFileSystemTest {
     assertFalse(statusProvider.isDirty());
   }
 
+  @Test
+  public void testIsDirtyWhenFileIsChangedBackToOriginal_shouldReturnFalse() throws IOException {
+    byte[] original = someBytes();
+    Files.write(gfs.getPath("/some_file.txt"), original);
+    Gfs.commit(gfs).execute();
+    Files.write(gfs.getPath("/some_file.txt"), someBytes());
+    assertTrue(statusProvider.isDirty());
+    Files.write(gfs.getPath("/some_file.txt"), original);
+    assertFalse(statusProvider.isDirty());
+  }
 
+  @Test
+  public void testIsDirtyAfterFileSystemIsReset_shouldReturnFalse() throws IOException {
+    Files.write(gfs.getPath("/some_file.txt"), someBytes());
+    gfs.reset();
+    assertFalse(statusProvider.isDirty());
+  }
 
 }
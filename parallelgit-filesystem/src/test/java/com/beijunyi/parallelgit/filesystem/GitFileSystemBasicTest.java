@@ -1,11 +1,14 @@
 package com.beijunyi.parallelgit.filesystem;
 
+import java.io.IOException;
 import java.nio.file.FileStore;
 import java.nio.file.Path;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Set;
 
+import com.beijunyi.parallelgit.filesystem.io.GfsWatchService;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -71,8 +74,10 @@ public class GitFileSystemBasicTest extends PreSetupGitFileSystemTest {
     gfs.getUserPrincipalLookupService();
   }
 
-  @Test(expected = UnsupportedOperationException.class)
-  public void newWatchService_shouldThrowUnsupportedOperationException() {
-    gfs.newWatchService();
+  @Test
+  public void newWatchService_shouldReturnGfsWatchService() throws IOException {
+    try(WatchService watcher = gfs.newWatchService()) {
+      assertTrue(watcher instanceof GfsWatchService);
+    }
   }
 }
@@ -0,0 +1,133 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+
+import org.eclipse.jgit.internal.storage.dfs.DfsObjDatabase;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.eclipse.jgit.lib.FileMode.EXECUTABLE_FILE;
+import static org.junit.Assert.*;
+
+public class GitFileSystemBatchEditTest extends PreSetupGitFileSystemTest {
+
+  @Before
+  public void setupFiles() throws IOException {
+    writeToGfs("/dir/existing.txt");
+  }
+
+  @Test
+  public void writeFiles_theFilesShouldExist() throws IOException {
+    byte[] data1 = someBytes();
+    byte[] data2 = someBytes();
+    gfs.edit()
+      .write("/dir/file1.txt", data1)
+      .write("/other/sub/file2.txt", data2)
+      .apply();
+    assertArrayEquals(data1, Files.readAllBytes(gfs.getPath("/dir/file1.txt")));
+    assertArrayEquals(data2, Files.readAllBytes(gfs.getPath("/other/sub/file2.txt")));
+    assertTrue(Files.exists(gfs.getPath("/dir/existing.txt")));
+  }
+
+  @Test
+  public void writeFileFromStream_theFileShouldHaveTheStreamContent() throws IOException {
+    byte[] data = someBytes();
+    gfs.edit().write("/dir/file.txt", new ByteArrayInputStream(data), data.length).apply();
+    assertArrayEquals(data, Files.readAllBytes(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void writeManyFilesFromStreams_theBlobsShouldBeFlushedOnceOnApply() throws IOException {
+    DfsObjDatabase db = (DfsObjDatabase) repo.getObjectDatabase();
+    int packs = db.getPacks().length;
+    GfsBatchEdit edit = gfs.edit();
+    for(int i = 0; i < 10; i++) {
+      byte[] data = someBytes();
+      edit.write("/dir/file" + i + ".txt", new ByteArrayInputStream(data), data.length);
+    }
+    assertEquals(packs, db.getPacks().length);
+    edit.apply();
+    assertEquals(packs + 1, db.getPacks().length);
+    assertTrue(Files.exists(gfs.getPath("/dir/file9.txt")));
+  }
+
+  @Test
+  public void deleteFile_theFileShouldNotExist() throws IOException {
+    gfs.edit().delete("/dir/existing.txt").apply();
+    assertFalse(Files.exists(gfs.getPath("/dir/existing.txt")));
+  }
+
+  @Test
+  public void setMode_theFileShouldBecomeExecutable() throws IOException {
+    gfs.edit().setMode("/dir/existing.txt", EXECUTABLE_FILE).apply();
+    assertTrue(Files.isExecutable(gfs.getPath("/dir/existing.txt")));
+  }
+
+  @Test
+  public void editSamePathTwice_theLastEditShouldWin() throws IOException {
+    byte[] expected = someBytes();
+    gfs.edit()
+      .write("/dir/file.txt", someBytes())
+      .write("dir/../dir/file.txt", expected)
+      .apply();
+    assertArrayEquals(expected, Files.readAllBytes(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void applyBatch_theResultShouldEqualToTheResultOfIndividualWrites() throws IOException {
+    byte[] data1 = someBytes();
+    byte[] data2 = someBytes();
+    gfs.edit()
+      .write("/dir/file1.txt", data1)
+      .write("/dir/sub/file2.txt", data2)
+      .delete("/dir/existing.txt")
+      .apply();
+    AnyObjectId batched = gfs.flush();
+
+    try(GitFileSystem individual = Gfs.newFileSystem(MASTER, repo)) {
+      Files.createDirectories(individual.getPath("/dir/sub"));
+      Files.write(individual.getPath("/dir/file1.txt"), data1);
+      Files.write(individual.getPath("/dir/sub/file2.txt"), data2);
+      assertEquals(individual.flush(), batched);
+    }
+  }
+
+  @Test
+  public void writeFileAfterFlush_theTreeShouldBeRehashed() throws IOException {
+    AnyObjectId before = gfs.flush();
+    gfs.edit().write("/dir/file.txt", someBytes()).apply();
+    assertNotEquals(before, gfs.flush());
+  }
+
+  @Test(expected = NotDirectoryException.class)
+  public void writeUnderExistingFile_shouldThrowNotDirectoryException() throws IOException {
+    gfs.edit().write("/dir/existing.txt/file.txt", someBytes()).apply();
+  }
+
+  @Test(expected = NoSuchFileException.class)
+  public void setModeOfNonExistentFile_shouldThrowNoSuchFileException() throws IOException {
+    gfs.edit().setMode("/dir/non_existent.txt", EXECUTABLE_FILE).apply();
+  }
+
+  @Test
+  public void setModeOfNonExistentFile_theExceptionShouldReportTheFullPath() throws IOException {
+    try {
+      gfs.edit().setMode("/dir/non_existent.txt", EXECUTABLE_FILE).apply();
+      fail();
+    } catch(NoSuchFileException e) {
+      assertEquals("/dir/non_existent.txt", e.getFile());
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void deleteRoot_shouldThrowIllegalArgumentException() {
+    gfs.edit().delete("/");
+  }
+
+}
@@ -0,0 +1,123 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.metrics.InMemoryGfsMetrics;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsCounter.OBJECTS_READ;
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static org.junit.Assert.*;
+
+public class GitFileSystemForkTest extends AbstractGitFileSystemTest {
+
+  private RevCommit commit;
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+    writeToCache("/dir/file1.txt");
+    writeToCache("/dir/sub/file2.txt");
+    commit = commitToBranch("test_branch");
+    initGitFileSystemForBranch("test_branch");
+  }
+
+  @Test
+  public void forkCleanFileSystem_theForkShouldHaveTheSameTree() throws IOException {
+    try(GitFileSystem fork = gfs.fork()) {
+      assertEquals(commit.getTree(), fork.flush());
+    }
+  }
+
+  @Test
+  public void forkFileSystem_theForkShouldHaveTheSameBranchAndCommit() throws IOException {
+    try(GitFileSystem fork = gfs.fork()) {
+      assertEquals("test_branch", fork.getStatusProvider().branch());
+      assertEquals(commit, fork.getStatusProvider().commit());
+    }
+  }
+
+  @Test
+  public void forkFileSystem_theForkShouldHaveADifferentSessionId() {
+    try(GitFileSystem fork = gfs.fork()) {
+      assertNotEquals(gfs.getSessionId(), fork.getSessionId());
+      assertSame(fork, GitFileSystemProvider.getDefault().getFileSystem(fork.getSessionId()));
+    }
+  }
+
+  @Test
+  public void readForkOfLoadedFileSystem_theTreesShouldNotBeReadAgain() throws IOException {
+    InMemoryGfsMetrics metrics = new InMemoryGfsMetrics();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch("test_branch").metrics(metrics)));
+    assertTrue(Files.exists(gfs.getPath("/dir/sub/file2.txt")));
+    long reads = metrics.getCount(OBJECTS_READ);
+    try(GitFileSystem fork = gfs.fork()) {
+      assertTrue(Files.exists(fork.getPath("/dir/sub/file2.txt")));
+      assertEquals(reads, metrics.getCount(OBJECTS_READ));
+    }
+  }
+
+  @Test
+  public void forkDirtyFileSystem_theForkShouldContainTheChanges() throws IOException {
+    byte[] data = someBytes();
+    writeToGfs("/dir/file1.txt", data);
+    try(GitFileSystem fork = gfs.fork()) {
+      assertArrayEquals(data, Files.readAllBytes(fork.getPath("/dir/file1.txt")));
+      assertEquals(gfs.flush(), fork.flush());
+    }
+  }
+
+  @Test
+  public void writeToFork_theSourceShouldNotBeAffected() throws IOException {
+    byte[] original = Files.readAllBytes(gfs.getPath("/dir/sub/file2.txt"));
+    try(GitFileSystem fork = gfs.fork()) {
+      Files.write(fork.getPath("/dir/sub/file2.txt"), someBytes());
+      Files.delete(fork.getPath("/dir/file1.txt"));
+      assertArrayEquals(original, Files.readAllBytes(gfs.getPath("/dir/sub/file2.txt")));
+      assertTrue(Files.exists(gfs.getPath("/dir/file1.txt")));
+      assertEquals(commit.getTree(), gfs.flush());
+    }
+  }
+
+  @Test
+  public void writeToSourceAfterFork_theForkShouldNotBeAffected() throws IOException {
+    writeToGfs("/dir/file3.txt");
+    try(GitFileSystem fork = gfs.fork()) {
+      ObjectId before = fork.flush();
+      writeToGfs("/dir/file3.txt", someBytes());
+      writeToGfs("/dir/sub/file4.txt");
+      assertFalse(Files.exists(fork.getPath("/dir/sub/file4.txt")));
+      assertEquals(before, fork.flush());
+    }
+  }
+
+  @Test
+  public void closeFork_theSourceShouldRemainOpen() throws IOException {
+    gfs.fork().close();
+    assertTrue(gfs.isOpen());
+    assertTrue(Files.exists(gfs.getPath("/dir/sub/file2.txt")));
+  }
+
+  @Test
+  public void closeSource_theForkShouldRemainOpen() throws IOException {
+    try(GitFileSystem fork = gfs.fork()) {
+      gfs.close();
+      assertTrue(Files.exists(fork.getPath("/dir/sub/file2.txt")));
+    }
+  }
+
+  @Test
+  public void closeSourceWithParallelFlush_theForkShouldStillFlush() throws IOException {
+    GitFileSystem source = Gfs.newFileSystem(repo(repo).branch("test_branch").flushParallelism(4));
+    try(GitFileSystem fork = source.fork()) {
+      source.close();
+      Files.write(fork.getPath("/dir/sub/file3.txt"), someBytes());
+      assertNotEquals(commit.getTree(), fork.flush());
+    }
+  }
+
+}
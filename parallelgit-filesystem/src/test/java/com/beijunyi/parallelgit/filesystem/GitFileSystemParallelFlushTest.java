@@ -0,0 +1,90 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+
+import com.beijunyi.parallelgit.utils.TreeUtils;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static java.nio.file.Files.*;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.junit.Assert.*;
+
+public class GitFileSystemParallelFlushTest extends AbstractGitFileSystemTest {
+
+  private RevCommit commit;
+
+  @Before
+  public void setupRepository() throws IOException {
+    initRepository();
+    writeToCache("/untouched/file1.txt");
+    writeToCache("/untouched/dir/file2.txt");
+    writeToCache("/modified/file3.txt");
+    commit = commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).flushParallelism(4)));
+  }
+
+  @Test
+  public void flushWhenNoChangeIsMade_theResultShouldEqualToThePreviousTree() throws IOException {
+    assertEquals(commit.getTree(), gfs.flush());
+  }
+
+  @Test
+  public void flushAfterChangesAreMade_theResultShouldEqualToTheResultOfSerialFlush() throws IOException {
+    makeChanges(gfs);
+    try(GitFileSystem serial = Gfs.newFileSystem(MASTER, repo)) {
+      makeChanges(serial);
+      assertEquals(serial.flush(), gfs.flush());
+    }
+  }
+
+  @Test
+  public void flushAfterChangesAreMade_theResultShouldContainTheNewFiles() throws IOException {
+    makeChanges(gfs);
+    AnyObjectId result = gfs.flush();
+    for(int i = 0; i < 8; i++) {
+      ObjectId blob = TreeUtils.getObjectId("/modified/dir" + i + "/file.txt", result, repo);
+      assertNotNull(blob);
+      assertArrayEquals(("content " + i).getBytes(), repo.open(blob).getBytes());
+    }
+  }
+
+  @Test
+  public void flushAfterChangesAreMade_theUntouchedSubtreeShouldKeepItsId() throws IOException {
+    makeChanges(gfs);
+    AnyObjectId result = gfs.flush();
+    assertEquals(TreeUtils.getObjectId("/untouched", commit.getTree(), repo), TreeUtils.getObjectId("/untouched", result, repo));
+  }
+
+  @Test
+  public void flushAfterAllFilesInDirectoryAreDeleted_theDirectoryShouldNotExistInTheResult() throws IOException {
+    delete(gfs.getPath("/modified/file3.txt"));
+    AnyObjectId result = gfs.flush();
+    assertNull(TreeUtils.getObjectId("/modified", result, repo));
+  }
+
+  @Test
+  public void flushTwice_theResultsShouldBeTheSame() throws IOException {
+    makeChanges(gfs);
+    assertEquals(gfs.flush(), gfs.flush());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setNonPositiveFlushParallelism_shouldThrowIllegalArgumentException() {
+    repo(repo).flushParallelism(0);
+  }
+
+  private static void makeChanges(GitFileSystem gfs) throws IOException {
+    write(gfs.getPath("/modified/file3.txt"), "new content".getBytes());
+    for(int i = 0; i < 8; i++) {
+      createDirectories(gfs.getPath("/modified/dir" + i));
+      write(gfs.getPath("/modified/dir" + i + "/file.txt"), ("content " + i).getBytes());
+    }
+    createDirectory(gfs.getPath("/empty"));
+  }
+
+}
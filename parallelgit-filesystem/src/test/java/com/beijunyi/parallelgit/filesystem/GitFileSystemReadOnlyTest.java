@@ -0,0 +1,123 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.Assert.*;
+
+public class GitFileSystemReadOnlyTest extends AbstractGitFileSystemTest {
+
+  private RevCommit commit;
+  private byte[] data;
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+    data = someBytes();
+    writeToCache("/dir/file.txt", data);
+    commit = commitToBranch("test_branch");
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).commit(commit).readOnly(true)));
+  }
+
+  @Test
+  public void isReadOnly_shouldReturnTrue() {
+    assertTrue(gfs.isReadOnly());
+    assertTrue(gfs.getFileStore().isReadOnly());
+  }
+
+  @Test
+  public void readFile_theResultShouldEqualToTheFileData() throws IOException {
+    assertArrayEquals(data, Files.readAllBytes(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void flush_theResultShouldBeTheCommitTree() throws IOException {
+    Files.readAllBytes(gfs.getPath("/dir/file.txt"));
+    assertEquals(commit.getTree(), gfs.flush());
+  }
+
+  @Test
+  public void readFilesConcurrently_theResultsShouldEqualToTheFileData() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<byte[]>> results = new ArrayList<>();
+      for(int i = 0; i < 32; i++) {
+        results.add(executor.submit(new Callable<byte[]>() {
+          @Override
+          public byte[] call() throws IOException {
+            return Files.readAllBytes(gfs.getPath("/dir/file.txt"));
+          }
+        }));
+      }
+      for(Future<byte[]> result : results)
+        assertArrayEquals(data, result.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void checkFilesExistConcurrently_allResultsShouldBeTrue() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Boolean>> results = new ArrayList<>();
+      for(int i = 0; i < 32; i++) {
+        results.add(executor.submit(new Callable<Boolean>() {
+          @Override
+          public Boolean call() throws IOException {
+            return Files.isRegularFile(gfs.getPath("/dir/file.txt")) && Files.isDirectory(gfs.getPath("/dir"));
+          }
+        }));
+      }
+      for(Future<Boolean> result : results)
+        assertTrue(result.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test(expected = ReadOnlyFileSystemException.class)
+  public void writeFile_shouldThrowReadOnlyFileSystemException() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+  }
+
+  @Test(expected = ReadOnlyFileSystemException.class)
+  public void openFileForWrite_shouldThrowReadOnlyFileSystemException() throws IOException {
+    Files.newByteChannel(gfs.getPath("/dir/file.txt"), WRITE);
+  }
+
+  @Test(expected = ReadOnlyFileSystemException.class)
+  public void createDirectory_shouldThrowReadOnlyFileSystemException() throws IOException {
+    Files.createDirectory(gfs.getPath("/new_dir"));
+  }
+
+  @Test(expected = ReadOnlyFileSystemException.class)
+  public void deleteFile_shouldThrowReadOnlyFileSystemException() throws IOException {
+    Files.delete(gfs.getPath("/dir/file.txt"));
+  }
+
+  @Test(expected = ReadOnlyFileSystemException.class)
+  public void applyBatchEdit_shouldThrowReadOnlyFileSystemException() throws IOException {
+    gfs.edit().write("/dir/file2.txt", someBytes()).apply();
+  }
+
+  @Test(expected = ReadOnlyFileSystemException.class)
+  public void commit_shouldThrowReadOnlyFileSystemException() throws IOException {
+    Gfs.commit(gfs).execute();
+  }
+
+  @Test(expected = AccessDeniedException.class)
+  public void checkWriteAccess_shouldThrowAccessDeniedException() throws IOException {
+    gfs.provider().checkAccess(gfs.getPath("/dir/file.txt"), AccessMode.WRITE);
+  }
+
+}
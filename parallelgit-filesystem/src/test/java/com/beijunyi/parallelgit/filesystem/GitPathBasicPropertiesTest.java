@@ -1,11 +1,16 @@
 package com.beijunyi.parallelgit.filesystem;
 
 import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.ProviderMismatchException;
 import java.nio.file.WatchEvent;
+import java.nio.file.WatchService;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+
 public class GitPathBasicPropertiesTest extends AbstractGitFileSystemTest {
 
   @Before
@@ -18,13 +23,28 @@ public class GitPathBasicPropertiesTest extends AbstractGitFileSystemTest {
     root.toFile();
   }
 
-  @Test(expected = UnsupportedOperationException.class)
-  public void registerWatcherTest() {
+  @Test(expected = NullPointerException.class)
+  public void registerNullWatcherTest() throws IOException {
     root.register(null);
   }
 
+  @Test(expected = ProviderMismatchException.class)
+  public void registerForeignWatcherTest() throws IOException {
+    try(WatchService watcher = FileSystems.getDefault().newWatchService()) {
+      root.register(watcher, ENTRY_CREATE);
+    }
+  }
+
   @Test(expected = UnsupportedOperationException.class)
-  public void registerWatcherWithModifierTest() {
-    root.register(null, new WatchEvent.Kind<?>[0], new WatchEvent.Modifier[0]);
+  public void registerWatcherWithModifierTest() throws IOException {
+    WatchEvent.Modifier modifier = new WatchEvent.Modifier() {
+      @Override
+      public String name() {
+        return "TEST";
+      }
+    };
+    try(WatchService watcher = gfs.newWatchService()) {
+      root.register(watcher, new WatchEvent.Kind<?>[] {ENTRY_CREATE}, modifier);
+    }
   }
 }
@@ -104,4 +104,18 @@ public class GitPathMatcherTest extends AbstractGitFileSystemTest {
   public void missingSyntaxTest() {
     gfs.getPathMatcher("foo");
   }
+
+  @Test
+  public void matchesDescendantOf_shouldReturnFalseOutsideTheLiteralPrefix() {
+    GfsPathMatcher matcher = (GfsPathMatcher) gfs.getPathMatcher("glob:/src/main/**/*.java");
+    assertTrue(matcher.matchesDescendantOf(gfs.getPath("/src")));
+    assertFalse(matcher.matchesDescendantOf(gfs.getPath("/src/test")));
+  }
+
+  @Test
+  public void regexMatchesDescendantOf_shouldReturnFalseWhenNoLongerPathCanMatch() {
+    GfsPathMatcher matcher = (GfsPathMatcher) gfs.getPathMatcher("regex:/src/main/.*");
+    assertTrue(matcher.matchesDescendantOf(gfs.getPath("/src")));
+    assertFalse(matcher.matchesDescendantOf(gfs.getPath("/src/test")));
+  }
 }
@@ -0,0 +1,77 @@
+package com.beijunyi.parallelgit.filesystem;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static org.junit.Assert.*;
+
+public class GitPathSharingTest extends AbstractGitFileSystemTest {
+
+  @Test
+  public void namesAndSubpaths_shouldEqualTheParsedPaths() throws IOException {
+    initGitFileSystem();
+    GitPath path = gfs.getPath("/a/b/c.txt");
+    assertEquals(gfs.getPath("b"), path.getName(1));
+    assertEquals(gfs.getPath("b").hashCode(), path.getName(1).hashCode());
+    assertEquals(gfs.getPath("b/c.txt"), path.subpath(1, 3));
+    assertEquals(0, gfs.getPath("c.txt").compareTo(path.getFileName()));
+    assertEquals("/a/b", path.getParent().toString());
+  }
+
+  @Test
+  public void operationsOnSubpath_shouldOnlySeeTheSubpath() throws IOException {
+    initGitFileSystem();
+    GitPath subpath = gfs.getPath("/a/./b/../c/d").subpath(1, 5);
+    assertEquals("./b/../c", subpath.toString());
+    assertEquals(gfs.getPath("c"), subpath.normalize());
+    assertEquals(gfs.getPath("./b/.."), subpath.getParent());
+    assertTrue(subpath.startsWith(gfs.getPath("./b")));
+    assertTrue(subpath.endsWith(gfs.getPath("../c")));
+    assertEquals(gfs.getPath("./b/../c/e"), subpath.resolve("e"));
+  }
+
+  @Test
+  public void getParentTwice_theResultShouldBeTheSameInstance() throws IOException {
+    initGitFileSystem();
+    GitPath path = gfs.getPath("/a/b/c.txt");
+    assertSame(path.getParent(), path.getParent());
+  }
+
+  @Test
+  public void getParentOfResolvedChild_theResultShouldBeTheBasePath() throws IOException {
+    initGitFileSystem();
+    GitPath dir = gfs.getPath("/a/b");
+    assertSame(dir, dir.resolve("c.txt").getParent());
+  }
+
+  @Test
+  public void getParentsOfSiblingsWithInterning_theResultsShouldBeTheSameInstance() throws IOException {
+    initRepository();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).pathInternCapacity(16)));
+    GitPath parent1 = gfs.getPath("/a/b/c1.txt").getParent();
+    GitPath parent2 = gfs.getPath("/a/b/c2.txt").getParent();
+    assertSame(parent1, parent2);
+    assertSame(parent1.getParent(), parent2.getParent());
+  }
+
+  @Test
+  public void exceedInternCapacity_theInternedDirectoriesShouldBeKept() throws IOException {
+    initRepository();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).pathInternCapacity(2)));
+    GitPath parent = gfs.getPath("/a/b/c.txt").getParent();
+    for(int i = 0; i < 8; i++)
+      gfs.getPath("/dir" + i + "/file.txt").getParent();
+    assertSame(parent, gfs.getPath("/a/b/d.txt").getParent());
+  }
+
+  @Test
+  public void nonAsciiPath_theStringShouldRoundTrip() throws IOException {
+    initGitFileSystem();
+    GitPath path = gfs.getPath("/é/文件.txt");
+    assertEquals("/é/文件.txt", path.toString());
+    assertEquals("文件.txt", path.getFileName().toString());
+  }
+
+}
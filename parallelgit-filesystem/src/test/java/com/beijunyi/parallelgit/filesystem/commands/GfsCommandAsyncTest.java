@@ -0,0 +1,99 @@
+package com.beijunyi.parallelgit.filesystem.commands;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.filesystem.GitFileSystem;
+import com.beijunyi.parallelgit.filesystem.PreSetupGitFileSystemTest;
+import com.beijunyi.parallelgit.filesystem.commands.GfsCommit.Result;
+import com.beijunyi.parallelgit.utils.CommitUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static org.junit.Assert.*;
+
+public class GfsCommandAsyncTest extends PreSetupGitFileSystemTest {
+
+  private ExecutorService executor;
+
+  @Before
+  public void setupExecutor() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void shutdownExecutor() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void executeAsync_theResultShouldBeTheSameAsExecute() throws Exception {
+    writeSomethingToGfs();
+    Result result = Gfs.commit(gfs).executeAsync(executor).get();
+    assertTrue(result.isSuccessful());
+    assertEquals(repo.resolve(gfs.getStatusProvider().branch()), result.getCommit());
+  }
+
+  @Test
+  public void executeAsyncWithConfiguredExecutor_theCommandShouldRunOnTheExecutor() throws Exception {
+    try(GitFileSystem gfs = Gfs.newFileSystem(repo(repo).branch("async_branch").commandExecutor(executor))) {
+      writeToGfs(gfs, "/file.txt");
+      Result result = Gfs.commit(gfs).executeAsync().get();
+      assertTrue(result.isSuccessful());
+      assertEquals(repo.resolve("async_branch"), result.getCommit());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void executeAsyncWithoutConfiguredExecutor_shouldThrowIllegalStateException() {
+    Gfs.commit(gfs).executeAsync();
+  }
+
+  @Test
+  public void executeAsyncTwice_theSecondFutureShouldFail() throws Exception {
+    writeSomethingToGfs();
+    GfsCommit command = Gfs.commit(gfs);
+    command.executeAsync(executor).get();
+    try {
+      command.executeAsync(executor).get();
+      fail();
+    } catch(ExecutionException e) {
+      assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test
+  public void commitConcurrentlyOnManyFileSystems_allCommitsShouldSucceed() throws Exception {
+    List<GitFileSystem> systems = new ArrayList<>();
+    List<Future<Result>> results = new ArrayList<>();
+    try {
+      for(int i = 0; i < 8; i++) {
+        GitFileSystem gfs = Gfs.newFileSystem("branch" + i, repo);
+        systems.add(gfs);
+        writeToGfs(gfs, "/file" + i + ".txt");
+        results.add(Gfs.commit(gfs).executeAsync(executor));
+      }
+      for(int i = 0; i < results.size(); i++) {
+        Result result = results.get(i).get();
+        assertTrue(result.isSuccessful());
+        assertTrue(CommitUtils.exists("branch" + i, repo));
+      }
+    } finally {
+      for(GitFileSystem gfs : systems)
+        gfs.close();
+    }
+  }
+
+  private static void writeToGfs(GitFileSystem gfs, String path) throws IOException {
+    gfs.edit().write(path, someBytes()).apply();
+  }
+
+}
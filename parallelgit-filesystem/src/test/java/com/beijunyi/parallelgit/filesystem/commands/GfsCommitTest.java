@@ -20,6 +20,16 @@ public class GfsCommitTest extends PreSetupGitFileSystemTest {
     assertEquals(repo.resolve(gfs.getStatusProvider().branch()), result.getCommit());
   }
 
+  @Test
+  public void commitInBranchWithoutHeadCommit_theResultCommitShouldHaveNoParent() throws IOException {
+    gfs.close();
+    injectGitFileSystem(Gfs.newFileSystem("new_branch", repo));
+    writeSomethingToGfs();
+    Result result = Gfs.commit(gfs).execute();
+    assertTrue(result.isSuccessful());
+    assertEquals(0, result.getCommit().getParentCount());
+  }
+
   @Test
   public void commitNoChange_theResultShouldBeUnsuccessful() throws IOException {
     Result result = Gfs.commit(gfs).execute();
@@ -0,0 +1,93 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.Collections.singleton;
+import static org.junit.Assert.*;
+
+public class DirectoryChildrenTest extends AbstractGitFileSystemTest {
+
+  private RevCommit commit;
+
+  @Before
+  public void setupFileSystem() throws IOException {
+    initRepository();
+    writeToCache("/dir/b.txt");
+    writeToCache("/dir/d.txt");
+    writeToCache("/dir/f.txt");
+    commit = commitToMaster();
+    initGitFileSystem();
+  }
+
+  @Test
+  public void loadDirectory_theChildrenShouldNotBeMaterialized() throws IOException {
+    DirectoryChildren children = findDirectory("/dir").getData();
+    assertEquals(3, children.size());
+    assertTrue(children.loaded().isEmpty());
+  }
+
+  @Test
+  public void findFile_onlyTheFileShouldBeMaterialized() throws IOException {
+    GfsIO.findFile(gfs.getPath("/dir/d.txt"));
+    DirectoryChildren children = findDirectory("/dir").getData();
+    assertEquals(singleton("d.txt"), children.loaded().keySet());
+    assertEquals(2, children.pending().size());
+  }
+
+  @Test
+  public void listChildren_theResultShouldBeSortedWithoutMaterializingChildren() throws IOException {
+    DirectoryNode dir = findDirectory("/dir");
+    assertEquals(Arrays.asList("b.txt", "d.txt", "f.txt"), dir.listChildren());
+    assertTrue(dir.getData().loaded().isEmpty());
+  }
+
+  @Test
+  public void addAndRemoveChildren_theListShouldStaySorted() throws IOException {
+    Files.write(gfs.getPath("/dir/a.txt"), someBytes());
+    Files.write(gfs.getPath("/dir/e.txt"), someBytes());
+    Files.delete(gfs.getPath("/dir/d.txt"));
+    assertEquals(Arrays.asList("a.txt", "b.txt", "e.txt", "f.txt"), findDirectory("/dir").listChildren());
+  }
+
+  @Test
+  public void removeAndRecreateChild_theChildShouldExist() throws IOException {
+    Files.delete(gfs.getPath("/dir/d.txt"));
+    byte[] expected = someBytes();
+    Files.write(gfs.getPath("/dir/d.txt"), expected);
+    assertArrayEquals(expected, Files.readAllBytes(gfs.getPath("/dir/d.txt")));
+    assertEquals(3, findDirectory("/dir").getData().size());
+  }
+
+  @Test
+  public void materializedChild_theOriginShouldBeTheCommittedEntry() throws IOException {
+    FileNode file = GfsIO.findFile(gfs.getPath("/dir/b.txt"));
+    assertFalse(file.isNew());
+    assertFalse(file.isModified());
+  }
+
+  @Test
+  public void flushAfterModifyingOneChild_theUnmaterializedChildrenShouldBeKept() throws IOException {
+    Files.write(gfs.getPath("/dir/b.txt"), someBytes());
+    gfs.flush();
+    DirectoryNode dir = findDirectory("/dir");
+    assertEquals(2, dir.getData().pending().size());
+    assertNotEquals(commit.getTree(), gfs.flush());
+    assertEquals(Arrays.asList("b.txt", "d.txt", "f.txt"), dir.listChildren());
+  }
+
+  private DirectoryNode findDirectory(String path) throws IOException {
+    DirectoryNode root = gfs.getFileStore().getRoot();
+    DirectoryNode ret = root;
+    for(String name : path.substring(1).split("/"))
+      ret = (DirectoryNode) ret.getChild(name);
+    return ret;
+  }
+
+}
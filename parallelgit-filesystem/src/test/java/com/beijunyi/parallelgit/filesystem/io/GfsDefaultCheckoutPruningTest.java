@@ -0,0 +1,78 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import com.beijunyi.parallelgit.utils.BlobUtils;
+import com.beijunyi.parallelgit.utils.CacheUtils;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.jgit.lib.FileMode.REGULAR_FILE;
+import static org.junit.Assert.*;
+
+public class GfsDefaultCheckoutPruningTest extends AbstractGitFileSystemTest {
+
+  private byte[] unchanged;
+  private byte[] target;
+
+  @Before
+  public void setupFileSystem() throws IOException {
+    initRepository();
+    unchanged = someBytes();
+    writeToCache("/a/file1.txt");
+    writeToCache("/b/file2.txt", unchanged);
+    commitToMaster();
+    initGitFileSystem();
+    target = someBytes();
+  }
+
+  @Test
+  public void checkoutTreeDifferingInOneFile_theFileShouldBeUpdated() throws IOException {
+    new GfsDefaultCheckout(gfs).checkout(createTargetTree());
+    assertArrayEquals(target, Files.readAllBytes(gfs.getPath("/a/file1.txt")));
+    assertArrayEquals(unchanged, Files.readAllBytes(gfs.getPath("/b/file2.txt")));
+  }
+
+  @Test
+  public void checkoutTreeDifferingInOneFile_theIdenticalSubtreeShouldNotBeLoaded() throws IOException {
+    new GfsDefaultCheckout(gfs).checkout(createTargetTree());
+    RootNode root = gfs.getFileStore().getRoot();
+    assertFalse(root.getData().loaded().containsKey("b"));
+  }
+
+  @Test
+  public void checkoutTreeWhenIdenticalSubtreeIsModified_theModifiedSubtreeShouldNotBeHashed() throws IOException {
+    Files.write(gfs.getPath("/b/file3.txt"), someBytes());
+    new GfsDefaultCheckout(gfs).checkout(createTargetTree());
+    DirectoryNode dir = (DirectoryNode) gfs.getFileStore().getRoot().getChild("b");
+    assertNotNull(dir);
+    assertNull(dir.id);
+    assertTrue(Files.exists(gfs.getPath("/b/file3.txt")));
+  }
+
+  @Test
+  public void checkoutTheHeadTree_nothingShouldBeLoaded() throws IOException {
+    new GfsDefaultCheckout(gfs).checkout(gfs.getStatusProvider().commit().getTree());
+    assertTrue(gfs.getFileStore().getRoot().getData().loaded().isEmpty());
+  }
+
+  @Test
+  public void checkoutTreeDifferingInOneFileWhenTheFileIsModified_theConflictShouldBeReported() throws IOException {
+    Files.write(gfs.getPath("/a/file1.txt"), someBytes());
+    GfsDefaultCheckout checkout = new GfsDefaultCheckout(gfs, false);
+    checkout.checkout(createTargetTree());
+    assertTrue(checkout.getConflicts().containsKey("/a/file1.txt"));
+  }
+
+  private ObjectId createTargetTree() throws IOException {
+    DirCache cache = DirCache.newInCore();
+    CacheUtils.addFile("/a/file1.txt", REGULAR_FILE, BlobUtils.insertBlob(target, repo), cache);
+    CacheUtils.addFile("/b/file2.txt", REGULAR_FILE, BlobUtils.insertBlob(unchanged, repo), cache);
+    return CacheUtils.writeTree(cache, repo);
+  }
+
+}
@@ -2,7 +2,10 @@ package com.beijunyi.parallelgit.filesystem.io;
 
 import java.io.IOException;
 import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
@@ -68,4 +71,95 @@ public class GfsDirectoryStreamTest extends AbstractGitFileSystemTest {
     ds.close();
     ds.iterator().next();
   }
+
+  @Test
+  public void directoryStreamWithGlob_theResultShouldOnlyContainMatchingChildren() throws IOException {
+    initRepository();
+    writeToCache("/dir/a.txt");
+    writeToCache("/dir/b.java");
+    writeToCache("/dir/c.txt");
+    commitToMaster();
+    initGitFileSystem();
+    assertEquals(Arrays.asList("/dir/a.txt", "/dir/c.txt"), list(GfsIO.newDirectoryStream(gfs.getPath("/dir"), "*.txt")));
+  }
+
+  @Test
+  public void directoryStreamWithNameFilter_rejectedNamesShouldNotReachThePathFilter() throws IOException {
+    initRepository();
+    writeToCache("/dir/a.txt");
+    writeToCache("/dir/b.txt");
+    commitToMaster();
+    initGitFileSystem();
+    final List<Path> accepted = new ArrayList<>();
+    GfsNameFilter filter = new GfsNameFilter() {
+      @Override
+      public boolean acceptName(String name) {
+        return name.startsWith("b");
+      }
+
+      @Override
+      public boolean accept(Path entry) {
+        accepted.add(entry);
+        return true;
+      }
+    };
+    assertEquals(Arrays.asList("/dir/b.txt"), list(provider.newDirectoryStream(gfs.getPath("/dir"), filter)));
+    assertTrue(accepted.isEmpty());
+  }
+
+  @Test
+  public void directoryStreamAfterAddingAndRemovingChildren_theResultShouldBeSorted() throws IOException {
+    initRepository();
+    writeToCache("/dir/b.txt");
+    writeToCache("/dir/d.txt");
+    commitToMaster();
+    initGitFileSystem();
+    Files.write(gfs.getPath("/dir/a.txt"), someBytes());
+    Files.write(gfs.getPath("/dir/c.txt"), someBytes());
+    Files.delete(gfs.getPath("/dir/d.txt"));
+    Files.write(gfs.getPath("/dir/e.txt"), someBytes());
+    assertEquals(Arrays.asList("/dir/a.txt", "/dir/b.txt", "/dir/c.txt", "/dir/e.txt"), list(Files.newDirectoryStream(gfs.getPath("/dir"))));
+  }
+
+  @Test
+  public void addChildWhileStreaming_theChildShouldBeSeenIfItSortsAfterTheCurrentEntry() throws IOException {
+    initRepository();
+    writeToCache("/dir/b.txt");
+    writeToCache("/dir/d.txt");
+    commitToMaster();
+    initGitFileSystem();
+    try(DirectoryStream<Path> ds = Files.newDirectoryStream(gfs.getPath("/dir"))) {
+      Iterator<Path> dsIt = ds.iterator();
+      assertEquals("/dir/b.txt", dsIt.next().toString());
+      Files.write(gfs.getPath("/dir/a.txt"), someBytes());
+      Files.write(gfs.getPath("/dir/c.txt"), someBytes());
+      assertEquals("/dir/c.txt", dsIt.next().toString());
+      assertEquals("/dir/d.txt", dsIt.next().toString());
+      assertFalse(dsIt.hasNext());
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void getIteratorTwice_shouldThrowIllegalStateException() throws IOException {
+    initRepository();
+    writeToCache("/dir/file.txt");
+    commitToMaster();
+    initGitFileSystem();
+    try(DirectoryStream<Path> ds = Files.newDirectoryStream(gfs.getPath("/dir"))) {
+      ds.iterator();
+      ds.iterator();
+    }
+  }
+
+  private static List<String> list(DirectoryStream<Path> ds) throws IOException {
+    List<String> ret = new ArrayList<>();
+    try {
+      for(Path child : ds)
+        ret.add(child.toString());
+    } finally {
+      ds.close();
+    }
+    return ret;
+  }
+
 }
@@ -0,0 +1,107 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.utils.TreeUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static java.nio.file.StandardOpenOption.*;
+import static java.util.Arrays.asList;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.eclipse.jgit.lib.Constants.encodeASCII;
+import static org.junit.Assert.*;
+
+public class GfsSeekableByteChannelSpillTest extends AbstractGitFileSystemTest {
+
+  private static final int THRESHOLD = 16;
+  private static final byte[] FILE_DATA = encodeASCII("18 bytes test data");
+
+  @Before
+  public void setupFileSystem() throws IOException {
+    initRepository();
+    writeToCache("/file.txt", FILE_DATA);
+    commitToMaster();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).writeBufferThreshold(THRESHOLD)));
+  }
+
+  @Test
+  public void writeDataLargerThanThreshold_theFileShouldContainTheData() throws IOException {
+    byte[] expected = someLargeBytes();
+    Files.write(gfs.getPath("/large.txt"), expected);
+    assertArrayEquals(expected, Files.readAllBytes(gfs.getPath("/large.txt")));
+  }
+
+  @Test
+  public void writeDataLargerThanThreshold_theFileNodeShouldNotHoldTheDataInMemory() throws IOException {
+    Files.write(gfs.getPath("/large.txt"), someLargeBytes());
+    FileNode file = GfsIO.findFile(gfs.getPath("/large.txt"));
+    assertFalse(file.isInitialized());
+    assertEquals(someLargeBytes().length, file.getSize());
+  }
+
+  @Test
+  public void writeDataLargerThanThreshold_theChannelShouldSpill() throws IOException {
+    FileNode file = GfsIO.findFile(gfs.getPath("/file.txt"));
+    try(GfsSeekableByteChannel channel = new GfsSeekableByteChannel(file, asList(READ, WRITE, TRUNCATE_EXISTING), THRESHOLD)) {
+      channel.write(ByteBuffer.wrap(encodeASCII("small")));
+      assertFalse(channel.isSpilled());
+      channel.write(ByteBuffer.wrap(someLargeBytes()));
+      assertTrue(channel.isSpilled());
+    }
+  }
+
+  @Test
+  public void appendToFileLargerThanThreshold_theFileShouldContainTheOriginalAndAppendedData() throws IOException {
+    byte[] append = encodeASCII(" (appended)");
+    Files.write(gfs.getPath("/file.txt"), append, APPEND);
+    assertEquals(new String(FILE_DATA) + " (appended)", new String(Files.readAllBytes(gfs.getPath("/file.txt"))));
+  }
+
+  @Test
+  public void readAndSeekInSpilledChannel_theResultShouldBeTheDataAtThePosition() throws IOException {
+    FileNode file = GfsIO.findFile(gfs.getPath("/file.txt"));
+    try(GfsSeekableByteChannel channel = new GfsSeekableByteChannel(file, asList(READ, WRITE), THRESHOLD)) {
+      assertTrue(channel.isSpilled());
+      ByteBuffer buffer = ByteBuffer.allocateDirect(5);
+      channel.position(3).read(buffer);
+      buffer.flip();
+      byte[] actual = new byte[buffer.remaining()];
+      buffer.get(actual);
+      assertArrayEquals(encodeASCII("bytes"), actual);
+    }
+  }
+
+  @Test
+  public void truncateSpilledChannel_theFileShouldContainTheRemainingData() throws IOException {
+    FileNode file = GfsIO.findFile(gfs.getPath("/file.txt"));
+    try(GfsSeekableByteChannel channel = new GfsSeekableByteChannel(file, asList(READ, WRITE), THRESHOLD)) {
+      channel.truncate(8);
+    }
+    assertArrayEquals(encodeASCII("18 bytes"), Files.readAllBytes(gfs.getPath("/file.txt")));
+  }
+
+  @Test
+  public void flushAfterWritingDataLargerThanThreshold_theResultTreeShouldContainTheBlob() throws IOException {
+    byte[] expected = someLargeBytes();
+    Files.write(gfs.getPath("/large.txt"), expected);
+    ObjectId tree = gfs.flush();
+    ObjectId blob = TreeUtils.getObjectId("/large.txt", tree, repo);
+    assertNotNull(blob);
+    assertArrayEquals(expected, repo.open(blob).getBytes());
+  }
+
+  private static byte[] someLargeBytes() {
+    byte[] ret = new byte[THRESHOLD * 8];
+    for(int i = 0; i < ret.length; i++)
+      ret[i] = (byte) i;
+    return ret;
+  }
+
+}
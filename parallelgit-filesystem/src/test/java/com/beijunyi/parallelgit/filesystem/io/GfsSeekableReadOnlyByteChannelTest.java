@@ -0,0 +1,109 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.singleton;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.eclipse.jgit.lib.Constants.encodeASCII;
+import static org.junit.Assert.*;
+
+public class GfsSeekableReadOnlyByteChannelTest extends AbstractGitFileSystemTest {
+
+  private static final byte[] FILE_DATA = encodeASCII("18 bytes test data");
+
+  @Before
+  public void setupRepository() throws IOException {
+    initRepository();
+    writeToCache("/file.txt", FILE_DATA);
+    commitToMaster();
+  }
+
+  @Test
+  public void seekBackwardInSmallFile_theResultShouldBeTheDataAtThePosition() throws IOException {
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER)));
+    try(GfsSeekableReadOnlyByteChannel channel = openChannel(Integer.MAX_VALUE)) {
+      read(channel, 12);
+      assertArrayEquals(encodeASCII("bytes"), read(channel.position(3), 5));
+    }
+  }
+
+  @Test
+  public void seekBackwardInFileLargerThanThreshold_theResultShouldBeTheDataAtThePosition() throws IOException {
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER)));
+    try(GfsSeekableReadOnlyByteChannel channel = openChannel(4)) {
+      read(channel, 12);
+      assertArrayEquals(encodeASCII("bytes"), read(channel.position(3), 5));
+    }
+  }
+
+  @Test
+  public void seekBackward_theChannelShouldSwitchToRandomAccess() throws IOException {
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER)));
+    try(GfsSeekableReadOnlyByteChannel channel = openChannel(4)) {
+      read(channel, 12);
+      assertFalse(channel.isRandomAccess());
+      channel.position(0);
+      assertTrue(channel.isRandomAccess());
+    }
+  }
+
+  @Test
+  public void readIntoDirectBuffer_theResultShouldBeTheFileData() throws IOException {
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER)));
+    try(GfsSeekableReadOnlyByteChannel channel = openChannel(Integer.MAX_VALUE)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(FILE_DATA.length);
+      while(buffer.hasRemaining() && channel.read(buffer) > 0);
+      buffer.flip();
+      byte[] actual = new byte[buffer.remaining()];
+      buffer.get(actual);
+      assertArrayEquals(FILE_DATA, actual);
+      assertEquals(FILE_DATA.length, channel.position());
+    }
+  }
+
+  @Test
+  public void seekBackwardThroughFileSystemChannel_theResultShouldBeTheDataAtThePosition() throws IOException {
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).readBufferThreshold(4)));
+    try(SeekableByteChannel channel = Files.newByteChannel(gfs.getPath("/file.txt"), READ)) {
+      read(channel.position(9), 4);
+      assertArrayEquals(encodeASCII("18"), read(channel.position(0), 2));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void setNegativeReadBufferThreshold_shouldThrowIllegalArgumentException() {
+    repo(repo).readBufferThreshold(-1);
+  }
+
+  @Test
+  public void readAfterEndOfFileInRandomAccessMode_shouldReturnNegativeOne() throws IOException {
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER)));
+    try(GfsSeekableReadOnlyByteChannel channel = openChannel(4)) {
+      read(channel, 12);
+      channel.position(0).position(FILE_DATA.length);
+      assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+    }
+  }
+
+  private GfsSeekableReadOnlyByteChannel openChannel(int threshold) throws IOException {
+    FileNode file = GfsIO.findFile(gfs.getPath("/file.txt"));
+    return new GfsSeekableReadOnlyByteChannel(file, singleton(READ), threshold);
+  }
+
+  private static byte[] read(SeekableByteChannel channel, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while(buffer.hasRemaining() && channel.read(buffer) > 0);
+    return buffer.array();
+  }
+
+}
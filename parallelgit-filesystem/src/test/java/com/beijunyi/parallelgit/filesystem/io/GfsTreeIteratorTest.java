@@ -43,4 +43,22 @@ public class GfsTreeIteratorTest extends AbstractGitFileSystemTest {
     assertEquals("file3.txt", iterator.getEntryPathString());
   }
 
+  @Test
+  public void moveForward_theIdBufferShouldBeReused() throws IOException {
+    byte[] buffer = iterator.idBuffer();
+    iterator.next(1);
+    assertSame(buffer, iterator.idBuffer());
+    assertEquals(gfs.getFileStore().getRoot().getChild("file2.txt").getObjectId(false), iterator.getEntryObjectId());
+  }
+
+  @Test
+  public void iterateDirectoryAndFileWithSamePrefix_theEntriesShouldBeInGitTreeOrder() throws IOException {
+    writeToGfs("/a/file.txt");
+    writeToGfs("/a.txt");
+    iterator = iterateRoot(gfs);
+    assertEquals("a.txt", iterator.getEntryPathString());
+    iterator.next(1);
+    assertEquals("a", iterator.getEntryPathString());
+  }
+
 }
@@ -0,0 +1,148 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import javax.annotation.Nonnull;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.jgit.lib.FileMode.*;
+import static org.junit.Assert.*;
+
+public class GfsWalkerTest extends AbstractGitFileSystemTest {
+
+  private byte[] data;
+  private ObjectId blob;
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+    data = someBytes();
+    blob = writeToCache("/a/file1.txt", data);
+    writeToCache("/a/b/file2.java");
+    writeToCache("/c/file3.txt");
+    writeToCache("/file4.txt");
+    commitToMaster();
+    initGitFileSystem();
+  }
+
+  @Test
+  public void walkCleanFileSystem_theEntriesShouldBeInTreeOrder() throws IOException {
+    assertEquals(Arrays.asList("/", "/a", "/a/b", "/a/b/file2.java", "/a/file1.txt", "/c", "/c/file3.txt", "/file4.txt"), paths(gfs.walk("/").collect()));
+  }
+
+  @Test
+  public void walkCleanFileSystem_theEntriesShouldHaveTheModeIdAndSize() throws IOException {
+    GfsWalkEntry entry = find(gfs.walk("/").collect(), "/a/file1.txt");
+    assertEquals(REGULAR_FILE, entry.getMode());
+    assertEquals(blob, entry.getObjectId());
+    assertEquals(data.length, entry.getSize());
+    assertEquals("file1.txt", entry.getName());
+    assertEquals(2, entry.getDepth());
+    assertEquals(gfs.getPath("/a/file1.txt"), entry.getPath());
+  }
+
+  @Test
+  public void walkCleanFileSystem_theDirectoriesShouldNotBeLoaded() throws IOException {
+    gfs.walk("/").collect();
+    DirectoryNode root = gfs.getFileStore().getRoot();
+    assertTrue(root.getData().loaded().isEmpty());
+  }
+
+  @Test
+  public void walkModifiedFileSystem_theEntriesShouldReflectTheChanges() throws IOException {
+    byte[] expected = someBytes();
+    Files.write(gfs.getPath("/a/new.txt"), expected);
+    Files.delete(gfs.getPath("/c/file3.txt"));
+    List<GfsWalkEntry> entries = gfs.walk("/").collect();
+    assertEquals(Arrays.asList("/", "/a", "/a/b", "/a/b/file2.java", "/a/file1.txt", "/a/new.txt", "/c", "/file4.txt"), paths(entries));
+    GfsWalkEntry entry = find(entries, "/a/new.txt");
+    assertEquals(calculateBlobId(expected), entry.getObjectId());
+    assertEquals(expected.length, entry.getSize());
+  }
+
+  @Test
+  public void walkWithPrune_thePrunedDirectoryShouldNotBeEntered() throws IOException {
+    assertEquals(Arrays.asList("/", "/c", "/c/file3.txt", "/file4.txt"), paths(gfs.walk("/").prune("/a").collect()));
+  }
+
+  @Test
+  public void walkWithFilter_onlyMatchingEntriesShouldBeReported() throws IOException {
+    assertEquals(Arrays.asList("/a/file1.txt", "/c/file3.txt", "/file4.txt"), paths(gfs.walk("/").filter("**.txt").collect()));
+  }
+
+  @Test
+  public void walkNonAsciiNames_theEntriesShouldHaveTheDecodedPathAndName() throws IOException {
+    Files.createDirectory(gfs.getPath("/c/目录"));
+    Files.write(gfs.getPath("/c/目录/文件.txt"), someBytes());
+    List<GfsWalkEntry> entries = gfs.walk("/c").filter("/c/目录/*.txt").collect();
+    assertEquals(Arrays.asList("/c/目录/文件.txt"), paths(entries));
+    assertEquals("文件.txt", entries.get(0).getName());
+  }
+
+  @Test
+  public void walkWithFilter_directoriesOutsideTheLiteralPrefixShouldNotBeEntered() throws IOException {
+    final List<String> visited = new ArrayList<>();
+    gfs.walk("/").filter("/a/b/*").walk(new GfsWalkVisitor() {
+      @Override
+      public boolean visit(GfsWalkEntry entry) {
+        visited.add(entry.getPathString());
+        return true;
+      }
+    });
+    assertEquals(Arrays.asList("/a/b/file2.java"), visited);
+    DirectoryNode root = gfs.getFileStore().getRoot();
+    assertTrue(root.getData().loaded().isEmpty());
+  }
+
+  @Test
+  public void walkWithMaxDepth_deeperEntriesShouldNotBeReported() throws IOException {
+    assertEquals(Arrays.asList("/a", "/a/b", "/a/file1.txt"), paths(gfs.walk("/a").maxDepth(1).collect()));
+  }
+
+  @Test
+  public void visitorReturnsFalse_theChildrenShouldBeSkipped() throws IOException {
+    final List<String> visited = new ArrayList<>();
+    gfs.walk("/").walk(new GfsWalkVisitor() {
+      @Override
+      public boolean visit(GfsWalkEntry entry) {
+        visited.add(entry.getPathString());
+        return !entry.getPathString().equals("/a");
+      }
+    });
+    assertEquals(Arrays.asList("/", "/a", "/c", "/c/file3.txt", "/file4.txt"), visited);
+  }
+
+  @Test
+  public void walkInParallel_theResultShouldContainTheSameEntries() throws IOException {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Set<String> expected = new HashSet<>(paths(gfs.walk("/").collect()));
+      assertEquals(expected, new HashSet<>(paths(gfs.walk("/").parallel(pool).collect())));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Nonnull
+  private static List<String> paths(List<GfsWalkEntry> entries) {
+    List<String> ret = new ArrayList<>();
+    for(GfsWalkEntry entry : entries)
+      ret.add(entry.getPathString());
+    return ret;
+  }
+
+  @Nonnull
+  private static GfsWalkEntry find(List<GfsWalkEntry> entries, String path) {
+    for(GfsWalkEntry entry : entries)
+      if(entry.getPathString().equals(path))
+        return entry;
+    throw new AssertionError(path);
+  }
+
+}
@@ -0,0 +1,289 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.filesystem.GitPath;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+import static org.junit.Assert.*;
+
+public class GfsWatchServiceTest extends AbstractGitFileSystemTest {
+
+  private WatchService watcher;
+  private GitPath dir;
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+    writeToCache("/dir/existing.txt");
+    commitToMaster();
+    initGitFileSystem();
+    watcher = gfs.newWatchService();
+    dir = gfs.getPath("/dir");
+  }
+
+  @After
+  public void closeWatcher() throws IOException {
+    watcher.close();
+  }
+
+  @Test
+  public void register_theKeyShouldBeValidAndWatchTheDirectory() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    assertTrue(key.isValid());
+    assertEquals(dir, key.watchable());
+    assertNull(watcher.poll());
+  }
+
+  @Test(expected = NotDirectoryException.class)
+  public void registerFile_shouldThrowNotDirectoryException() throws IOException {
+    gfs.getPath("/dir/existing.txt").register(watcher, ENTRY_CREATE);
+  }
+
+  @Test(expected = NoSuchFileException.class)
+  public void registerNonExistentDirectory_shouldThrowNoSuchFileException() throws IOException {
+    gfs.getPath("/non_existent").register(watcher, ENTRY_CREATE);
+  }
+
+  @Test
+  public void createFile_shouldSignalEntryCreate() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    Files.write(dir.resolve("new.txt"), someBytes());
+
+    assertSame(key, watcher.poll());
+    List<WatchEvent<?>> events = key.pollEvents();
+    assertEquals(1, events.size());
+    assertEquals(ENTRY_CREATE, events.get(0).kind());
+    assertEquals(gfs.getPath("new.txt"), events.get(0).context());
+  }
+
+  @Test
+  public void writeExistingFile_shouldSignalEntryModify() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_MODIFY);
+    Files.write(dir.resolve("existing.txt"), someBytes());
+
+    assertSame(key, watcher.poll());
+    assertEquals(kinds(ENTRY_MODIFY), kindsOf(key.pollEvents()));
+  }
+
+  @Test
+  public void modifyFilesCreatedAfterFirstModification_shouldSignalTheirNames() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_MODIFY);
+    Files.setPosixFilePermissions(dir.resolve("existing.txt"), PosixFilePermissions.fromString("rwxr-xr-x"));
+    Files.createFile(dir.resolve("new.txt"));
+    Files.setPosixFilePermissions(dir.resolve("new.txt"), PosixFilePermissions.fromString("rwxr-xr-x"));
+
+    List<WatchEvent<?>> events = key.pollEvents();
+    assertEquals(2, events.size());
+    assertEquals(gfs.getPath("existing.txt"), events.get(0).context());
+    assertEquals(gfs.getPath("new.txt"), events.get(1).context());
+  }
+
+  @Test
+  public void deleteFile_shouldSignalEntryDelete() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_DELETE);
+    Files.delete(dir.resolve("existing.txt"));
+
+    assertSame(key, watcher.poll());
+    assertEquals(kinds(ENTRY_DELETE), kindsOf(key.pollEvents()));
+  }
+
+  @Test
+  public void changeFileMode_shouldSignalEntryModify() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_MODIFY);
+    Files.setPosixFilePermissions(dir.resolve("existing.txt"), PosixFilePermissions.fromString("rwxr-xr-x"));
+
+    assertSame(key, watcher.poll());
+    assertEquals(kinds(ENTRY_MODIFY), kindsOf(key.pollEvents()));
+  }
+
+  @Test
+  public void changeInUnregisteredKind_shouldNotSignalTheKey() throws IOException {
+    dir.register(watcher, ENTRY_DELETE);
+    Files.write(dir.resolve("new.txt"), someBytes());
+    assertNull(watcher.poll());
+  }
+
+  @Test
+  public void changeInSubdirectory_shouldNotSignalTheParentKey() throws IOException {
+    Files.createDirectory(dir.resolve("sub"));
+    dir.register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+    Files.write(dir.resolve("sub/new.txt"), someBytes());
+    assertNull(watcher.poll());
+  }
+
+  @Test
+  public void repeatedEvents_shouldBeCountedInOneEvent() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_MODIFY);
+    Path file = dir.resolve("existing.txt");
+    Files.write(file, someBytes());
+    Files.write(file, someBytes());
+    Files.write(file, someBytes());
+
+    List<WatchEvent<?>> events = watcher.poll().pollEvents();
+    assertEquals(1, events.size());
+    assertEquals(3, events.get(0).count());
+    assertTrue(key.reset());
+  }
+
+  @Test
+  public void exceedMaxEvents_shouldSignalOverflow() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    for(int i = 0; i < GfsWatchKey.MAX_EVENTS + 10; i++)
+      Files.createFile(dir.resolve("file" + i));
+
+    List<WatchEvent<?>> events = key.pollEvents();
+    assertEquals(GfsWatchKey.MAX_EVENTS, events.size());
+    WatchEvent<?> last = events.get(events.size() - 1);
+    assertEquals(OVERFLOW, last.kind());
+    assertEquals(11, last.count());
+  }
+
+  @Test
+  public void eventAfterOverflowWhenNotFull_shouldBeQueuedSeparately() throws IOException {
+    WatchKey key = root.register(watcher, ENTRY_CREATE);
+    gfs.reset();
+    Files.createFile(root.resolve("new.txt"));
+
+    List<WatchEvent<?>> events = key.pollEvents();
+    assertEquals(kinds(OVERFLOW, ENTRY_CREATE), kindsOf(events));
+    assertEquals(1, events.get(0).count());
+  }
+
+  @Test
+  public void resetKeyWithPendingEvents_shouldRequeueTheKey() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    Files.createFile(dir.resolve("file1"));
+    assertSame(key, watcher.poll());
+    Files.createFile(dir.resolve("file2"));
+    assertNull(watcher.poll());
+    assertTrue(key.reset());
+    assertSame(key, watcher.poll());
+  }
+
+  @Test
+  public void cancelKey_theKeyShouldNoLongerBeSignalled() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    key.cancel();
+    Files.createFile(dir.resolve("new.txt"));
+
+    assertFalse(key.isValid());
+    assertFalse(key.reset());
+    assertNull(watcher.poll());
+  }
+
+  @Test
+  public void deleteWatchedDirectory_theKeyShouldBeInvalidated() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_DELETE);
+    Files.delete(dir.resolve("existing.txt"));
+    Files.delete(dir);
+
+    assertSame(key, watcher.poll());
+    assertFalse(key.isValid());
+  }
+
+  @Test
+  public void resetFileSystem_shouldSignalOverflow() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    gfs.reset();
+
+    assertSame(key, watcher.poll());
+    assertEquals(kinds(OVERFLOW), kindsOf(key.pollEvents()));
+  }
+
+  @Test
+  public void checkoutBranch_shouldSignalTheAppliedChanges() throws IOException {
+    writeToCache("/new_dir/file.txt");
+    commitToBranch("test_branch");
+    WatchKey key = root.register(watcher, ENTRY_CREATE);
+    Gfs.checkout(gfs).target("test_branch").execute();
+
+    assertSame(key, watcher.poll());
+    List<WatchEvent<?>> events = key.pollEvents();
+    assertEquals(kinds(ENTRY_CREATE), kindsOf(events));
+    assertEquals(gfs.getPath("new_dir"), events.get(0).context());
+  }
+
+  @Test
+  public void checkoutBranchReplacingWatchedDirectory_shouldSignalOverflow() throws IOException {
+    writeToCache("/dir/from_branch.txt");
+    commitToBranch("test_branch");
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    Gfs.checkout(gfs).target("test_branch").execute();
+
+    assertSame(key, watcher.poll());
+    assertEquals(kinds(OVERFLOW), kindsOf(key.pollEvents()));
+    assertTrue(key.reset());
+    Files.createFile(dir.resolve("new.txt"));
+    assertSame(key, watcher.poll());
+  }
+
+  @Test(expected = ClosedWatchServiceException.class)
+  public void pollClosedWatchService_shouldThrowClosedWatchServiceException() throws IOException {
+    watcher.close();
+    watcher.poll();
+  }
+
+  @Test
+  public void closeWatchService_theKeysShouldBeInvalidated() throws IOException {
+    WatchKey key = dir.register(watcher, ENTRY_CREATE);
+    watcher.close();
+    assertFalse(key.isValid());
+  }
+
+  @Test
+  public void closeWatchService_theObjectServiceShouldHaveNoWatchers() throws IOException {
+    assertTrue(objService.hasWatchers());
+    watcher.close();
+    watcher.close();
+    assertFalse(objService.hasWatchers());
+  }
+
+  @Test
+  public void overwriteFileNextToWatchedDirectory_theKeyShouldStayValid() throws IOException {
+    Files.createDirectory(dir.resolve("sub"));
+    WatchKey key = dir.resolve("sub").register(watcher, ENTRY_CREATE);
+    Files.write(dir.resolve("existing.txt"), someBytes());
+    Files.createFile(dir.resolve("sub/new.txt"));
+
+    assertTrue(key.isValid());
+    assertSame(key, watcher.poll());
+  }
+
+  @Test
+  public void closeFileSystem_theWatchServiceShouldBeClosed() throws IOException {
+    gfs.close();
+    try {
+      watcher.poll();
+      fail();
+    } catch(ClosedWatchServiceException ignore) {
+    }
+  }
+
+  @Nonnull
+  private static List<WatchEvent.Kind<?>> kinds(WatchEvent.Kind<?>... kinds) {
+    List<WatchEvent.Kind<?>> ret = new ArrayList<>();
+    for(WatchEvent.Kind<?> kind : kinds)
+      ret.add(kind);
+    return ret;
+  }
+
+  @Nonnull
+  private static List<WatchEvent.Kind<?>> kindsOf(List<WatchEvent<?>> events) {
+    List<WatchEvent.Kind<?>> ret = new ArrayList<>();
+    for(WatchEvent<?> event : events)
+      ret.add(event.kind());
+    return ret;
+  }
+
+}
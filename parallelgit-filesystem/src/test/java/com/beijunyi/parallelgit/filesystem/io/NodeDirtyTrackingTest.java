@@ -0,0 +1,71 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.filesystem.PreSetupGitFileSystemTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NodeDirtyTrackingTest extends PreSetupGitFileSystemTest {
+
+  private RootNode rootNode;
+
+  @Before
+  public void setupTree() throws IOException {
+    writeToGfs("/dir1/file1.txt");
+    writeToGfs("/dir2/file2.txt");
+    Gfs.commit(gfs).execute();
+    rootNode = gfs.getFileStore().getRoot();
+  }
+
+  @Test
+  public void afterCommit_allNodesShouldBeClean() throws IOException {
+    assertFalse(rootNode.isDirty());
+    assertFalse(rootNode.getChild("dir1").isDirty());
+    assertFalse(rootNode.getChild("dir2").isDirty());
+  }
+
+  @Test
+  public void writeFile_theFileAndItsAncestorsShouldBeDirty() throws IOException {
+    Files.write(gfs.getPath("/dir1/file1.txt"), someBytes());
+    DirectoryNode dir1 = (DirectoryNode) rootNode.getChild("dir1");
+    assertTrue(dir1.getChild("file1.txt").isDirty());
+    assertTrue(dir1.isDirty());
+    assertTrue(rootNode.isDirty());
+  }
+
+  @Test
+  public void writeFile_theSiblingSubtreeShouldStayClean() throws IOException {
+    Files.write(gfs.getPath("/dir1/file1.txt"), someBytes());
+    assertFalse(rootNode.getChild("dir2").isDirty());
+  }
+
+  @Test
+  public void deleteFile_theParentDirectoryShouldBeDirty() throws IOException {
+    Files.delete(gfs.getPath("/dir1/file1.txt"));
+    assertTrue(rootNode.getChild("dir1").isDirty());
+  }
+
+  @Test
+  public void commitChanges_allNodesShouldBeCleanAgain() throws IOException {
+    Files.write(gfs.getPath("/dir1/file1.txt"), someBytes());
+    Gfs.commit(gfs).execute();
+    DirectoryNode dir1 = (DirectoryNode) rootNode.getChild("dir1");
+    assertFalse(dir1.getChild("file1.txt").isDirty());
+    assertFalse(dir1.isDirty());
+    assertFalse(rootNode.isDirty());
+  }
+
+  @Test
+  public void newFile_shouldBeDirty() throws IOException {
+    writeToGfs("/dir3/file3.txt");
+    DirectoryNode dir3 = (DirectoryNode) rootNode.getChild("dir3");
+    assertTrue(dir3.isDirty());
+    assertTrue(dir3.getChild("file3.txt").isDirty());
+  }
+
+}
@@ -0,0 +1,138 @@
+package com.beijunyi.parallelgit.filesystem.io;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.PreSetupGitFileSystemTest;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.junit.Assert.*;
+
+public class NodeLookupCacheTest extends PreSetupGitFileSystemTest {
+
+  @Before
+  public void createDirectory() throws IOException {
+    Files.createDirectory(gfs.getPath("/dir"));
+  }
+
+  @Test
+  public void findFileTwice_theSecondResultShouldBeTheSameNode() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    FileNode first = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    assertSame(first, GfsIO.findFile(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void findFile_theFileAndItsParentShouldBeCached() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    NodeLookupCache cache = gfs.getFileStore().getRoot().getLookupCache();
+    assertNotNull(cache.get(gfs.getPath("/dir/file.txt")));
+    assertNotNull(cache.get(gfs.getPath("/dir")));
+  }
+
+  @Test
+  public void deleteCachedFile_theFileShouldNotExist() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    assertTrue(Files.exists(gfs.getPath("/dir/file.txt")));
+    Files.delete(gfs.getPath("/dir/file.txt"));
+    assertFalse(Files.exists(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void replaceCachedFile_theResultShouldBeTheNewFile() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    FileNode before = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    Files.delete(gfs.getPath("/dir/file.txt"));
+    byte[] expected = someBytes();
+    Files.write(gfs.getPath("/dir/file.txt"), expected);
+    assertNotSame(before, GfsIO.findFile(gfs.getPath("/dir/file.txt")));
+    assertArrayEquals(expected, Files.readAllBytes(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void resetFileSystem_cachedFileShouldNotExist() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    assertTrue(Files.exists(gfs.getPath("/dir/file.txt")));
+    gfs.reset();
+    assertFalse(Files.exists(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void moveCachedDirectory_theFileShouldBeFoundAtTheNewLocation() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    assertTrue(Files.exists(gfs.getPath("/dir/file.txt")));
+    Files.move(gfs.getPath("/dir"), gfs.getPath("/moved"));
+    assertFalse(Files.exists(gfs.getPath("/dir/file.txt")));
+    assertTrue(Files.exists(gfs.getPath("/moved/file.txt")));
+  }
+
+  @Test
+  public void modifyFileContent_cachedEntriesShouldRemainValid() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    FileNode before = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    NodeLookupCache cache = gfs.getFileStore().getRoot().getLookupCache();
+    assertSame(before, cache.get(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void createFileInAnotherDirectory_cachedEntriesShouldRemainValid() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    FileNode before = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    Files.createDirectory(gfs.getPath("/other"));
+    Files.write(gfs.getPath("/other/file.txt"), someBytes());
+    NodeLookupCache cache = gfs.getFileStore().getRoot().getLookupCache();
+    assertSame(before, cache.get(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void deleteSibling_cachedEntriesShouldRemainValid() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    Files.write(gfs.getPath("/dir/sibling.txt"), someBytes());
+    FileNode before = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    Files.delete(gfs.getPath("/dir/sibling.txt"));
+    NodeLookupCache cache = gfs.getFileStore().getRoot().getLookupCache();
+    assertSame(before, cache.get(gfs.getPath("/dir/file.txt")));
+  }
+
+  @Test
+  public void resetFileSystem_cachedNodesShouldBeExiled() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    FileNode file = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    gfs.reset();
+    assertTrue(file.isExiled());
+    assertNull(GfsIO.findNode(gfs.getPath("/dir")));
+  }
+
+  @Test
+  public void exceedMaxEntries_theLeastRecentlyUsedEntriesShouldBeEvicted() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    FileNode file = GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    NodeLookupCache cache = new NodeLookupCache();
+    for(int i = 0; i < NodeLookupCache.MAX_ENTRIES; i++)
+      cache.put(gfs.getPath("/file" + i), file, cache.getGeneration());
+    assertNotNull(cache.get(gfs.getPath("/file0")));
+    cache.put(gfs.getPath("/new"), file, cache.getGeneration());
+
+    assertTrue(cache.size() <= NodeLookupCache.MAX_ENTRIES * 3 / 4 + 1);
+    assertNotNull(cache.get(gfs.getPath("/file0")));
+    assertNotNull(cache.get(gfs.getPath("/new")));
+    assertNull(cache.get(gfs.getPath("/file1")));
+    assertNotNull(cache.get(gfs.getPath("/file" + (NodeLookupCache.MAX_ENTRIES - 1))));
+  }
+
+  @Test
+  public void replaceCachedDirectory_cachedDescendantsShouldBeInvalidated() throws IOException {
+    Files.write(gfs.getPath("/dir/file.txt"), someBytes());
+    GfsIO.findFile(gfs.getPath("/dir/file.txt"));
+    Files.createDirectory(gfs.getPath("/replacement"));
+    Files.move(gfs.getPath("/replacement"), gfs.getPath("/dir"), REPLACE_EXISTING);
+    NodeLookupCache cache = gfs.getFileStore().getRoot().getLookupCache();
+    assertNull(cache.get(gfs.getPath("/dir/file.txt")));
+    assertFalse(Files.exists(gfs.getPath("/dir/file.txt")));
+  }
+
+}
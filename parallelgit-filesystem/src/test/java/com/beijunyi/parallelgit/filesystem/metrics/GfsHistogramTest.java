@@ -0,0 +1,41 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GfsHistogramTest {
+
+  private final GfsHistogram histogram = new GfsHistogram();
+
+  @Test
+  public void recordValues_theCountTotalAndMaxShouldBeTracked() {
+    histogram.record(10);
+    histogram.record(20);
+    histogram.record(30);
+    assertEquals(3, histogram.getCount());
+    assertEquals(60, histogram.getTotal());
+    assertEquals(30, histogram.getMax());
+    assertEquals(20, histogram.getMean(), 0);
+  }
+
+  @Test
+  public void getPercentile_theResultShouldBeWithinAFactorOfTwo() {
+    for(int i = 1; i <= 1000; i++)
+      histogram.record(i);
+    long median = histogram.getPercentile(50);
+    assertTrue(median >= 500 && median < 1000);
+    assertEquals(1000, histogram.getPercentile(100));
+  }
+
+  @Test
+  public void getPercentileOfEmptyHistogram_shouldReturnZero() {
+    assertEquals(0, histogram.getPercentile(99));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void getPercentileOutOfRange_shouldThrowIllegalArgumentException() {
+    histogram.getPercentile(101);
+  }
+
+}
@@ -0,0 +1,83 @@
+package com.beijunyi.parallelgit.filesystem.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.beijunyi.parallelgit.filesystem.AbstractGitFileSystemTest;
+import com.beijunyi.parallelgit.filesystem.Gfs;
+import com.beijunyi.parallelgit.filesystem.GfsObjectCache;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsCounter.*;
+import static com.beijunyi.parallelgit.filesystem.metrics.GfsTimer.*;
+import static com.beijunyi.parallelgit.filesystem.utils.GfsConfiguration.repo;
+import static org.eclipse.jgit.lib.Constants.MASTER;
+import static org.junit.Assert.*;
+
+public class InMemoryGfsMetricsTest extends AbstractGitFileSystemTest {
+
+  private InMemoryGfsMetrics metrics;
+
+  @Before
+  public void setupFileSystem() throws IOException {
+    initRepository();
+    writeToCache("/dir/file1.txt", someBytes());
+    writeToCache("/dir/file2.txt", someBytes());
+    commitToMaster();
+    metrics = new InMemoryGfsMetrics();
+    injectGitFileSystem(Gfs.newFileSystem(repo(repo).branch(MASTER).metrics(metrics).objectCache(new GfsObjectCache())));
+  }
+
+  @Test
+  public void readFile_theObjectReadsShouldBeCounted() throws IOException {
+    Files.readAllBytes(gfs.getPath("/dir/file1.txt"));
+    assertTrue(metrics.getCount(OBJECTS_READ) > 0);
+    assertEquals(metrics.getCount(OBJECTS_READ), metrics.getHistogram(OBJECT_READ).getCount());
+  }
+
+  @Test
+  public void readFile_theInflatedBytesShouldBeCounted() throws IOException {
+    byte[] data = Files.readAllBytes(gfs.getPath("/dir/file1.txt"));
+    assertEquals(data.length, metrics.getCount(BYTES_INFLATED));
+  }
+
+  @Test
+  public void readCachedFile_theInflatedBytesShouldNotBeCountedAgain() throws IOException {
+    byte[] data = Files.readAllBytes(gfs.getPath("/dir/file1.txt"));
+    Files.readAllBytes(gfs.getPath("/dir/file1.txt"));
+    assertEquals(data.length, metrics.getCount(BYTES_INFLATED));
+  }
+
+  @Test
+  public void findFile_theMaterializedNodesShouldBeCounted() throws IOException {
+    Files.exists(gfs.getPath("/dir/file1.txt"));
+    assertEquals(2, metrics.getCount(NODES_MATERIALIZED));
+  }
+
+  @Test
+  public void readCachedObjectTwice_theCacheHitsAndMissesShouldBeCounted() throws IOException {
+    objService.readTree(gfs.getStatusProvider().commit().getTree());
+    objService.readTree(gfs.getStatusProvider().commit().getTree());
+    assertEquals(1, metrics.getCount(CACHE_MISSES));
+    assertEquals(1, metrics.getCount(CACHE_HITS));
+  }
+
+  @Test
+  public void commitChanges_theCommitFlushAndWritesShouldBeRecorded() throws IOException {
+    Files.write(gfs.getPath("/dir/file1.txt"), someBytes());
+    Gfs.commit(gfs).execute();
+    assertEquals(1, metrics.getHistogram(COMMIT).getCount());
+    assertEquals(1, metrics.getHistogram(FLUSH).getCount());
+    assertEquals(3, metrics.getCount(OBJECTS_WRITTEN));
+  }
+
+  @Test
+  public void clear_allCountersAndHistogramsShouldBeReset() throws IOException {
+    Files.readAllBytes(gfs.getPath("/dir/file1.txt"));
+    metrics.clear();
+    assertEquals(0, metrics.getCount(OBJECTS_READ));
+    assertEquals(0, metrics.getHistogram(OBJECT_READ).getCount());
+  }
+
+}
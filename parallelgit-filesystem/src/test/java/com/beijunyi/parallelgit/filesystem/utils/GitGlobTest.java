@@ -0,0 +1,78 @@
+package com.beijunyi.parallelgit.filesystem.utils;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.eclipse.jgit.lib.Constants.encode;
+import static org.junit.Assert.*;
+
+public class GitGlobTest {
+
+  private static final String[] GLOBS = {
+    "foo.html", "*.html", "f*", "*foo.html*", "??o.html", "foo.{class,html}", "foo{.htm,.class}", "[e-g]oo.html",
+    "[!a-e]oo.html", "foo[-a-z]bar", "[^f]oo", "/tmp/*", "/tmp/**", "/src/main/**/*.java", "**.txt", "**/b/*",
+    "/a/{b,c}/*.txt", "\\{foo*", "*\\].html", "/*/file?.txt", "/dir/{*.txt,sub/**}"
+  };
+
+  private static final String[] PATHS = {
+    "foo.html", "foo.htm", "foo.class", "foo-bar", "^oo", "/tmp/foo", "/tmp/foo/bar", "/src/main/java/A.java",
+    "/src/main/A.java", "/src/test/A.java", "/a.txt", "/a/b/c.txt", "/a/c/d.txt", "/a/d/e.txt", "{foo}.html",
+    "[foo].html", "/x/file1.txt", "/x/y/file1.txt", "/dir/a.txt", "/dir/sub/x/y", "/dir/other/a.txt", "/é/b/ü"
+  };
+
+  @Test
+  public void matches_theResultShouldBeTheSameAsTheRegexPattern() {
+    for(String glob : GLOBS) {
+      Pattern regex = Pattern.compile(GitGlobs.toRegexPattern(glob));
+      GitGlob compiled = GitGlob.compile(glob);
+      for(String path : PATHS)
+        assertEquals(glob + " " + path, regex.matcher(path).matches(), compiled.matches(path));
+    }
+  }
+
+  @Test
+  public void matchesDescendantOf_shouldReturnFalseForDirectoriesOutsideTheLiteralPrefix() {
+    GitGlob glob = GitGlob.compile("/src/main/**/*.java");
+    assertEquals("/src/main/", glob.getLiteralPrefix());
+    assertTrue(glob.matchesDescendantOf("/"));
+    assertTrue(glob.matchesDescendantOf("/src"));
+    assertTrue(glob.matchesDescendantOf("/src/main"));
+    assertTrue(glob.matchesDescendantOf("/src/main/java/com"));
+    assertFalse(glob.matchesDescendantOf("/src/test"));
+    assertFalse(glob.matchesDescendantOf("/lib"));
+  }
+
+  @Test
+  public void matchesDescendantOf_shouldStopAtTheDepthOfTheLastSegment() {
+    GitGlob glob = GitGlob.compile("/*/file?.txt");
+    assertTrue(glob.matchesDescendantOf("/x"));
+    assertFalse(glob.matchesDescendantOf("/x/y"));
+  }
+
+  @Test
+  public void matchesDescendantOfGroup_shouldConsiderEveryAlternative() {
+    GitGlob glob = GitGlob.compile("/a/{b,c}/*.txt");
+    assertTrue(glob.matchesDescendantOf("/a/b"));
+    assertTrue(glob.matchesDescendantOf("/a/c"));
+    assertFalse(glob.matchesDescendantOf("/a/d"));
+  }
+
+  @Test
+  public void matchesDescendantOfRange_shouldOnlyReadTheGivenBytes() {
+    GitGlob glob = GitGlob.compile("/*/file?.txt");
+    byte[] bytes = encode("xx/x/y/zz");
+    assertTrue(glob.matchesDescendantOf(bytes, 2, 3));
+    assertTrue(glob.matchesDescendantOf(bytes, 2, 2));
+    assertFalse(glob.matchesDescendantOf(bytes, 2, 5));
+    assertFalse(glob.matchesDescendantOf(bytes, 2, 4));
+  }
+
+  @Test
+  public void matchNonAsciiName_aQuestionMarkShouldMatchOneCharacter() {
+    assertTrue(GitGlob.compile("/?/b/?").matches("/é/b/ü"));
+    assertTrue(GitGlob.compile("/[à-ê]").matches("/é"));
+    assertFalse(GitGlob.compile("/??").matches("/é"));
+  }
+
+}
@@ -8,6 +8,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.beijunyi.parallelgit.utils.exceptions.NoSuchCommitException;
+import com.beijunyi.parallelgit.utils.io.TreeEdit;
 import org.eclipse.jgit.dircache.DirCache;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
@@ -206,6 +207,27 @@ public final class CommitUtils {
     return createCommit(message, cache, new PersonIdent(repo), parent, repo);
   }
 
+  @Nonnull
+  public static RevCommit createCommit(String message, Iterable<? extends TreeEdit> edits, PersonIdent author, PersonIdent committer, @Nullable AnyObjectId parent, Repository repo) throws IOException {
+    try(ObjectReader reader = repo.newObjectReader(); ObjectInserter inserter = repo.newObjectInserter()) {
+      AnyObjectId base = parent != null ? getCommit(parent, reader).getTree() : null;
+      AnyObjectId treeId = TreeUtils.insertTree(base, edits.iterator(), reader, inserter);
+      AnyObjectId commitId = insertCommit(message, treeId, author, committer, toParentList(parent), inserter);
+      inserter.flush();
+      return CommitUtils.getCommit(commitId, repo);
+    }
+  }
+
+  @Nonnull
+  public static RevCommit createCommit(String message, Iterable<? extends TreeEdit> edits, PersonIdent committer, @Nullable AnyObjectId parent, Repository repo) throws IOException {
+    return createCommit(message, edits, committer, committer, parent, repo);
+  }
+
+  @Nonnull
+  public static RevCommit createCommit(String message, Iterable<? extends TreeEdit> edits, @Nullable AnyObjectId parent, Repository repo) throws IOException {
+    return createCommit(message, edits, new PersonIdent(repo), parent, repo);
+  }
+
   @Nonnull
   private static ObjectId insertCommit(String message, AnyObjectId treeId, PersonIdent author, PersonIdent committer, List<? extends AnyObjectId> parents, ObjectInserter inserter) throws IOException {
     CommitBuilder builder = new CommitBuilder();
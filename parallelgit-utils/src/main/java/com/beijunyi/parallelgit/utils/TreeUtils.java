@@ -3,13 +3,19 @@ package com.beijunyi.parallelgit.utils;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.NoSuchFileException;
+import java.util.*;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
+import com.beijunyi.parallelgit.utils.io.GitFileEntry;
+import com.beijunyi.parallelgit.utils.io.TreeEdit;
 import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.Paths;
 
+import static com.beijunyi.parallelgit.utils.io.GitFileEntry.*;
 import static org.eclipse.jgit.lib.FileMode.*;
 
 public final class TreeUtils {
@@ -182,5 +188,109 @@ public final class TreeUtils {
     }
   }
 
+  @Nonnull
+  public static ObjectId insertTree(@Nullable AnyObjectId base, Iterator<? extends TreeEdit> edits, ObjectReader reader, ObjectInserter inserter) throws IOException {
+    ObjectId ret = applyEdits(base, "", new EditCursor(edits), reader, inserter);
+    return ret != null ? ret : inserter.insert(new TreeFormatter());
+  }
+
+  @Nonnull
+  public static ObjectId insertTree(@Nullable AnyObjectId base, Iterator<? extends TreeEdit> edits, Repository repo) throws IOException {
+    try(ObjectReader reader = repo.newObjectReader(); ObjectInserter inserter = repo.newObjectInserter()) {
+      ObjectId treeId = insertTree(base, edits, reader, inserter);
+      inserter.flush();
+      return treeId;
+    }
+  }
+
+  @Nullable
+  private static ObjectId applyEdits(@Nullable AnyObjectId base, String prefix, EditCursor edits, ObjectReader reader, ObjectInserter inserter) throws IOException {
+    Map<String, GitFileEntry> children = readChildren(base, reader);
+    TreeEdit edit;
+    while((edit = edits.peek(prefix)) != null) {
+      String relative = edit.getPath().substring(prefix.length());
+      int separator = relative.indexOf('/');
+      if(separator < 0) {
+        edits.next();
+        if(edit.isDelete())
+          children.remove(relative);
+        else
+          children.put(relative, edit.getEntry());
+      } else {
+        String name = relative.substring(0, separator);
+        GitFileEntry current = children.get(name);
+        boolean isSubtree = current != null && current.isSubtree();
+        ObjectId subtree = applyEdits(isSubtree ? current.getId() : null, prefix + name + "/", edits, reader, inserter);
+        if(subtree != null)
+          children.put(name, newTreeEntry(subtree));
+        else if(isSubtree)
+          children.remove(name);
+      }
+    }
+    return children.isEmpty() ? null : inserter.insert(formatTree(children));
+  }
+
+  @Nonnull
+  private static Map<String, GitFileEntry> readChildren(@Nullable AnyObjectId tree, ObjectReader reader) throws IOException {
+    Map<String, GitFileEntry> ret = new HashMap<>();
+    if(tree != null) {
+      CanonicalTreeParser parser = new CanonicalTreeParser(null, reader, tree);
+      while(!parser.eof()) {
+        ret.put(parser.getEntryPathString(), newEntry(parser.getEntryObjectId(), parser.getEntryFileMode()));
+        parser.next(1);
+      }
+    }
+    return ret;
+  }
+
+  @Nonnull
+  private static TreeFormatter formatTree(Map<String, GitFileEntry> children) {
+    final List<String> names = new ArrayList<>(children.keySet());
+    final byte[][] encoded = new byte[names.size()][];
+    final int[] modes = new int[names.size()];
+    Integer[] order = new Integer[names.size()];
+    for(int i = 0; i < order.length; i++) {
+      encoded[i] = Constants.encode(names.get(i));
+      modes[i] = children.get(names.get(i)).getMode().getBits();
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer i1, Integer i2) {
+        return Paths.compare(encoded[i1], 0, encoded[i1].length, modes[i1], encoded[i2], 0, encoded[i2].length, modes[i2]);
+      }
+    });
+    TreeFormatter ret = new TreeFormatter();
+    for(int i : order) {
+      GitFileEntry entry = children.get(names.get(i));
+      ret.append(encoded[i], entry.getMode(), entry.getId());
+    }
+    return ret;
+  }
+
+  private static class EditCursor {
+
+    private final Iterator<? extends TreeEdit> edits;
+    private TreeEdit current;
+
+    private EditCursor(Iterator<? extends TreeEdit> edits) {
+      this.edits = edits;
+      current = edits.hasNext() ? edits.next() : null;
+    }
+
+    @Nullable
+    private TreeEdit peek(String prefix) {
+      return current != null && current.getPath().startsWith(prefix) ? current : null;
+    }
+
+    private void next() {
+      String previous = current.getPath();
+      current = edits.hasNext() ? edits.next() : null;
+      if(current != null && current.getPath().compareTo(previous) <= 0)
+        throw new IllegalArgumentException("Edits must be sorted by path: " + current.getPath() + " after " + previous);
+    }
+
+  }
+
 
 }
@@ -1,32 +1,44 @@
 package com.beijunyi.parallelgit.utils.io;
 
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.eclipse.jgit.lib.*;
+import org.eclipse.jgit.util.IO;
 
 import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
 
 public class BlobSnapshot extends ObjectSnapshot<byte[]> {
 
+  private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
   private final ObjectReader reader;
+  private final ObjectLoader loader;
 
   private BlobSnapshot(ObjectReader reader, @Nullable ObjectId id) {
     super(null, id);
     this.reader = reader;
+    this.loader = null;
+  }
+
+  private BlobSnapshot(ObjectLoader loader, ObjectId id) {
+    super(null, id);
+    this.reader = null;
+    this.loader = loader;
   }
 
   private BlobSnapshot(ObjectReader reader) {
-    this(null, null);
+    this(reader, null);
   }
 
 
   private BlobSnapshot(byte[] data) {
     super(data, null);
     reader = null;
+    loader = null;
   }
 
   @Nonnull
@@ -39,22 +51,27 @@ public class BlobSnapshot extends ObjectSnapshot<byte[]> {
   }
 
   private void loadData() throws IOException {
-    synchronized (reader) {
-      ObjectLoader loader = reader.open(id);
-      if (loader.getSize() > Integer.MAX_VALUE - 8) {
-        throw new IOException("Can't load object" + id + ": size is greater than can fit in a Java array");
-      }
-      int len = (int) loader.getSize();
-      data = new byte[len];
-      int offset = 0;
-      while (offset < len) {
-        int bytesRead = loader.openStream().read(data, offset, len - offset);
-        if (bytesRead <= 0) {
-          throw new IOException("Unexpected EOF reading " + id);
-        }
-        offset += bytesRead;
+    ObjectLoader loader = this.loader;
+    if (loader == null) {
+      synchronized (reader) {
+        loader = reader.open(id, OBJ_BLOB);
       }
     }
+    data = readBytes(loader);
+  }
+
+  @Nonnull
+  private byte[] readBytes(ObjectLoader loader) throws IOException {
+    if (!loader.isLarge())
+      return loader.getCachedBytes();
+    long size = loader.getSize();
+    if (size > MAX_ARRAY_SIZE)
+      throw new IOException("Can't load object " + id + ": size is greater than can fit in a Java array");
+    byte[] ret = new byte[(int) size];
+    try (InputStream in = loader.openStream()) {
+      IO.readFully(in, ret, 0, ret.length);
+    }
+    return ret;
   }
 
   @Nonnull
@@ -62,6 +79,15 @@ public class BlobSnapshot extends ObjectSnapshot<byte[]> {
     return new BlobSnapshot(reader, id);
   }
 
+  /**
+   * Creates a snapshot backed by an already opened loader. The loader's cached bytes are used as the data without
+   * copying, so the returned array must not be modified.
+   */
+  @Nonnull
+  public static BlobSnapshot load(ObjectId id, ObjectLoader loader) {
+    return new BlobSnapshot(loader, id);
+  }
+
   @Nonnull
   public static BlobSnapshot load(ObjectId id, Repository repo) throws IOException {
     try(ObjectReader reader = repo.newObjectReader()) {
@@ -92,6 +118,10 @@ public class BlobSnapshot extends ObjectSnapshot<byte[]> {
   }
 
   public InputStream getInputStream() throws IOException {
+    if(data != null)
+      return new ByteArrayInputStream(data);
+    if(loader != null)
+      return loader.openStream();
     synchronized (reader) {
       return reader.open(id).openStream();
     }
@@ -0,0 +1,52 @@
+package com.beijunyi.parallelgit.utils.io;
+
+import javax.annotation.Nonnull;
+
+import com.beijunyi.parallelgit.utils.TreeUtils;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.FileMode;
+
+import static com.beijunyi.parallelgit.utils.io.GitFileEntry.*;
+import static org.eclipse.jgit.lib.FileMode.REGULAR_FILE;
+
+public class TreeEdit {
+
+  private final String path;
+  private final GitFileEntry entry;
+
+  private TreeEdit(String path, GitFileEntry entry) {
+    if(path.isEmpty()) throw new IllegalArgumentException("Cannot edit the root tree");
+    this.path = path;
+    this.entry = entry;
+  }
+
+  @Nonnull
+  public static TreeEdit write(String path, AnyObjectId blob, FileMode mode) {
+    return new TreeEdit(TreeUtils.normalizeNodePath(path), newEntry(blob.toObjectId(), mode));
+  }
+
+  @Nonnull
+  public static TreeEdit write(String path, AnyObjectId blob) {
+    return write(path, blob, REGULAR_FILE);
+  }
+
+  @Nonnull
+  public static TreeEdit delete(String path) {
+    return new TreeEdit(TreeUtils.normalizeNodePath(path), missingEntry());
+  }
+
+  @Nonnull
+  public String getPath() {
+    return path;
+  }
+
+  @Nonnull
+  public GitFileEntry getEntry() {
+    return entry;
+  }
+
+  public boolean isDelete() {
+    return entry.isMissing();
+  }
+
+}
@@ -0,0 +1,93 @@
+package com.beijunyi.parallelgit.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.beijunyi.parallelgit.AbstractParallelGitTest;
+import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
+import org.eclipse.jgit.errors.LargeObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.ObjectStream;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.junit.Assert.*;
+
+public class BlobSnapshotGetDataTest extends AbstractParallelGitTest {
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+  }
+
+  @Test
+  public void getDataOfStoredBlob_theResultShouldEqualToTheBlobData() throws IOException {
+    byte[] expected = someBytes();
+    ObjectId blob = writeToCache(someFilename(), expected);
+    commit();
+    try(ObjectReader reader = repo.newObjectReader()) {
+      assertArrayEquals(expected, BlobSnapshot.load(blob, reader).getData());
+    }
+  }
+
+  @Test
+  public void getDataOfLargeBlobReadInChunks_theResultShouldEqualToTheBlobData() throws IOException {
+    byte[] expected = new byte[10000];
+    for(int i = 0; i < expected.length; i++)
+      expected[i] = (byte) i;
+    ChunkedLoader loader = new ChunkedLoader(expected, 7);
+    BlobSnapshot snapshot = BlobSnapshot.load(calculateBlobId(expected), loader);
+    assertArrayEquals(expected, snapshot.getData());
+    assertEquals(1, loader.openedStreams);
+  }
+
+  private static class ChunkedLoader extends ObjectLoader {
+
+    private final byte[] data;
+    private final int chunkSize;
+    private int openedStreams = 0;
+
+    private ChunkedLoader(byte[] data, int chunkSize) {
+      this.data = data;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public int getType() {
+      return OBJ_BLOB;
+    }
+
+    @Override
+    public long getSize() {
+      return data.length;
+    }
+
+    @Override
+    public boolean isLarge() {
+      return true;
+    }
+
+    @Override
+    public byte[] getCachedBytes() throws LargeObjectException {
+      throw new LargeObjectException();
+    }
+
+    @Override
+    public ObjectStream openStream() {
+      openedStreams++;
+      InputStream in = new ByteArrayInputStream(data) {
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+          return super.read(b, off, Math.min(len, chunkSize));
+        }
+      };
+      return new ObjectStream.Filter(OBJ_BLOB, data.length, in);
+    }
+
+  }
+
+}
@@ -6,6 +6,7 @@ import java.io.InputStream;
 import com.beijunyi.parallelgit.AbstractParallelGitTest;
 import com.beijunyi.parallelgit.utils.io.BlobSnapshot;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -51,4 +52,17 @@ public class BlobUtilsReadBlobTest extends AbstractParallelGitTest {
     assertArrayEquals(expected, snapshot.getData());
   }
 
+  @Test
+  public void loadBlobFromLoader_theResultShouldHaveTheBlobData() throws Exception {
+    byte[] expected = someBytes();
+    ObjectId blob = writeToCache(someFilename(), expected);
+    commit();
+
+    BlobSnapshot snapshot;
+    try(ObjectReader reader = repo.newObjectReader()) {
+      snapshot = BlobSnapshot.load(blob, reader.open(blob));
+    }
+    assertArrayEquals(expected, snapshot.getData());
+  }
+
 }
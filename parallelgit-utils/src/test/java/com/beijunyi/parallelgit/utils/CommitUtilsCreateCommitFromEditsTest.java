@@ -0,0 +1,100 @@
+package com.beijunyi.parallelgit.utils;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.beijunyi.parallelgit.AbstractParallelGitTest;
+import com.beijunyi.parallelgit.utils.io.TreeEdit;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.beijunyi.parallelgit.utils.io.TreeEdit.*;
+import static org.eclipse.jgit.lib.FileMode.EXECUTABLE_FILE;
+import static org.junit.Assert.*;
+
+public class CommitUtilsCreateCommitFromEditsTest extends AbstractParallelGitTest {
+
+  private RevCommit base;
+
+  @Before
+  public void setUp() throws IOException {
+    initRepository();
+    writeToCache("/a/file1.txt");
+    writeToCache("/a.txt");
+    writeToCache("/b/c/file2.txt");
+    writeToCache("/untouched/file3.txt");
+    base = commitToMaster();
+  }
+
+  @Test
+  public void createCommitFromEdits_theResultTreeShouldEqualToTheTreeBuiltFromCache() throws IOException {
+    ObjectId blob1 = BlobUtils.insertBlob(someBytes(), repo);
+    ObjectId blob2 = BlobUtils.insertBlob(someBytes(), repo);
+    ObjectId blob3 = BlobUtils.insertBlob(someBytes(), repo);
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(
+      write("/a", blob1),
+      delete("/a.txt"),
+      write("/b/c/file2.txt", blob2, EXECUTABLE_FILE),
+      write("/b/d/file4.txt", blob3)
+    ), base, repo);
+
+    CacheUtils.deleteDirectory("/a", cache);
+    CacheUtils.deleteFile("/a.txt", cache);
+    CacheUtils.addFile("/a", blob1, cache);
+    CacheUtils.deleteFile("/b/c/file2.txt", cache);
+    CacheUtils.addFile("/b/c/file2.txt", EXECUTABLE_FILE, blob2, cache);
+    CacheUtils.addFile("/b/d/file4.txt", blob3, cache);
+    assertEquals(CacheUtils.writeTree(cache, repo), commit.getTree());
+  }
+
+  @Test
+  public void createCommitFromEdits_theParentShouldBeTheBaseCommit() throws IOException {
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(write("/new.txt", someObjectId())), base, repo);
+    assertEquals(1, commit.getParentCount());
+    assertEquals(base, commit.getParent(0));
+  }
+
+  @Test
+  public void createCommitFromEdits_theUntouchedSubtreeShouldKeepItsId() throws IOException {
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(write("/a/file5.txt", someObjectId())), base, repo);
+    assertEquals(TreeUtils.getObjectId("/untouched", base.getTree(), repo), TreeUtils.getObjectId("/untouched", commit.getTree(), repo));
+  }
+
+  @Test
+  public void deleteTheOnlyFileInDirectory_theDirectoryShouldNotExist() throws IOException {
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(delete("/b/c/file2.txt")), base, repo);
+    assertFalse(TreeUtils.exists("/b", commit.getTree(), repo));
+  }
+
+  @Test
+  public void deleteUnderFile_theFileShouldSurvive() throws IOException {
+    ObjectId file = TreeUtils.getObjectId("/a.txt", base.getTree(), repo);
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(delete("/a.txt/file.txt")), base, repo);
+    assertEquals(file, TreeUtils.getObjectId("/a.txt", commit.getTree(), repo));
+  }
+
+  @Test
+  public void writeUnderFile_theFileShouldBeReplacedByDirectory() throws IOException {
+    ObjectId blob = BlobUtils.insertBlob(someBytes(), repo);
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(write("/a.txt/file.txt", blob)), base, repo);
+    assertTrue(TreeUtils.isDirectory("/a.txt", commit.getTree(), repo));
+    assertEquals(blob, TreeUtils.getObjectId("/a.txt/file.txt", commit.getTree(), repo));
+  }
+
+  @Test
+  public void createCommitFromEditsWithoutParent_theTreeShouldOnlyContainTheEdits() throws IOException {
+    ObjectId blob = BlobUtils.insertBlob(someBytes(), repo);
+    RevCommit commit = CommitUtils.createCommit(someCommitMessage(), Arrays.asList(write("/dir/file.txt", blob)), null, repo);
+    assertEquals(0, commit.getParentCount());
+    assertEquals(blob, TreeUtils.getObjectId("/dir/file.txt", commit.getTree(), repo));
+    assertFalse(TreeUtils.exists("/a.txt", commit.getTree(), repo));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void createCommitFromUnsortedEdits_shouldThrowIllegalArgumentException() throws IOException {
+    CommitUtils.createCommit(someCommitMessage(), Arrays.<TreeEdit>asList(delete("/b/c/file2.txt"), delete("/a.txt")), base, repo);
+  }
+
+}